@@ -0,0 +1,55 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+/**
+ * Shared fixtures for the benchmarks.
+ */
+final class BenchmarkWorlds {
+    static final float TOWER_X = GameWorld.WORLD_WIDTH / 2f;
+    static final float TOWER_Y = GameWorld.WORLD_HEIGHT / 2f;
+
+    private BenchmarkWorlds() { }
+
+    static Tower newTower() {
+        return new Tower(TOWER_X - 200, TOWER_Y - 50, 400, 100);
+    }
+
+    /**
+     * A store of viruses scattered over the whole playfield, all still approaching.
+     */
+    static VirusStore scatteredViruses(int count, long seed) {
+        RandomXS128 random = new RandomXS128(seed);
+        VirusStore store = new VirusStore(count);
+        for (int i = 0; i < count; i++) {
+            store.add(new Virus(), random.nextFloat() * GameWorld.WORLD_WIDTH, random.nextFloat() * GameWorld.WORLD_HEIGHT, 110, i);
+        }
+        return store;
+    }
+
+    /**
+     * A store of viruses that have all reached the tower and are circling it.
+     */
+    static VirusStore circlingViruses(int count, long seed) {
+        VirusStore store = scatteredViruses(count, seed);
+        for (int i = 0; i < count; i++) {
+            store.x[i] = TOWER_X - VirusStore.HALF_SIZE;
+            store.y[i] = TOWER_Y - VirusStore.HALF_SIZE;
+        }
+        store.updateAll(GameWorld.STEP, TOWER_X, TOWER_Y);
+        return store;
+    }
+
+    /**
+     * A world at the given wave whose tower can't lose, so a benchmark can step it indefinitely.
+     */
+    static GameWorld immortalWorld(int wave, long seed) {
+        GameWorld world = new GameWorld(seed);
+        Tower tower = world.getTower();
+        for (int i = 0; i < 1000; i++) tower.upgrade(Upgrade.STORAGE_SPACE);
+        for (int i = 0; i < 20; i++) tower.upgrade(Upgrade.PROCESSOR_SPEED);
+        for (int i = 0; i < 10; i++) tower.upgrade(Upgrade.INTERNET_SPEED);
+        world.startWave(wave);
+        return world;
+    }
+}
@@ -0,0 +1,19 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.RandomXS128;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CombatBenchmark {
+    private final RandomXS128 random = new RandomXS128(4);
+
+    @Benchmark
+    public float calculateDamage() {
+        return CombatUtils.calculateDamage(random, 10, 8, 3);
+    }
+}
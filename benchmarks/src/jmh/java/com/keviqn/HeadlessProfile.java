@@ -0,0 +1,45 @@
+package com.keviqn;
+
+/**
+ * Runs the simulation headless with the frame profiler attached and prints the per-phase
+ * percentiles. Frames are single fixed steps. Run through {@code ./gradlew :benchmarks:profile},
+ * which also starts a JFR recording carrying the profiler's events.
+ * <p>
+ * Arguments: wave (default 50), frames (default 3600), seed (default 1).
+ */
+public final class HeadlessProfile {
+    private static final FrameProfiler.Phase[] PHASES = FrameProfiler.Phase.values();
+
+    private HeadlessProfile() { }
+
+    public static void main(String[] args) {
+        int wave = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 3600;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        GameWorld world = BenchmarkWorlds.immortalWorld(wave, seed);
+        FrameProfiler profiler = new FrameProfiler(frames, new JvmMemoryProbe());
+        profiler.addSink(new JfrFrameSink(world));
+        world.setProfiler(profiler);
+
+        for (int i = 0; i < frames; i++) {
+            profiler.begin(FrameProfiler.Phase.FRAME);
+            profiler.begin(FrameProfiler.Phase.SIMULATION);
+            world.step();
+            profiler.end(FrameProfiler.Phase.SIMULATION);
+            profiler.end(FrameProfiler.Phase.FRAME);
+            profiler.endFrame();
+        }
+
+        System.out.printf("wave %d, %d frames, %d viruses, %d projectiles at the end%n", wave, frames,
+            world.getViruses().size(), world.getProjectiles().size());
+        System.out.printf("%-16s %10s %10s %10s%n", "phase (us)", "p50", "p95", "p99");
+        for (FrameProfiler.Phase phase : PHASES) {
+            if (profiler.percentile(phase, 0.99f) == 0) continue;
+            System.out.printf("%-16s %10.1f %10.1f %10.1f%n", phase.getLabel(), profiler.percentile(phase, 0.5f) / 1000f,
+                profiler.percentile(phase, 0.95f) / 1000f, profiler.percentile(phase, 0.99f) / 1000f);
+        }
+        System.out.printf("allocated/frame p50 %d B, p99 %d B, GCs %d%n", profiler.allocationPercentile(0.5f),
+            profiler.allocationPercentile(0.99f), profiler.getGcCount());
+    }
+}
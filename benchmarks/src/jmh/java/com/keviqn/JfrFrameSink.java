@@ -0,0 +1,79 @@
+package com.keviqn;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Forwards every profiled frame to Java Flight Recorder as custom events, so a recording shows
+ * the game's own phases next to the JVM's GC and allocation events. Lives here rather than in
+ * core because Android has no JFR.
+ */
+final class JfrFrameSink implements FrameProfiler.Sink {
+    private static final FrameProfiler.Phase[] PHASES = FrameProfiler.Phase.values();
+
+    @Name("com.keviqn.FramePhase")
+    @Label("Frame Phase")
+    @Category("AnotherTD")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+    }
+
+    @Name("com.keviqn.Frame")
+    @Label("Frame")
+    @Category("AnotherTD")
+    static class FrameEvent extends Event {
+        @Label("Frame Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+
+        @Label("Allocated")
+        @DataAmount(DataAmount.BYTES)
+        long allocated;
+
+        @Label("Viruses")
+        int viruses;
+
+        @Label("Projectiles")
+        int projectiles;
+    }
+
+    private static final EventType PHASE_EVENTS = EventType.getEventType(PhaseEvent.class);
+
+    private final GameWorld world;
+
+    JfrFrameSink(GameWorld world) {
+        this.world = world;
+    }
+
+    @Override
+    public void frame(FrameProfiler profiler) {
+        // Event objects are only created while a recording is running. The profiler doesn't count
+        // a sink's allocations against the frames it measures.
+        if (!PHASE_EVENTS.isEnabled()) return;
+        for (FrameProfiler.Phase phase : PHASES) {
+            PhaseEvent event = new PhaseEvent();
+            if (!event.shouldCommit()) continue;
+            event.phase = phase.getLabel();
+            event.nanos = profiler.last(phase);
+            event.commit();
+        }
+        FrameEvent event = new FrameEvent();
+        if (event.shouldCommit()) {
+            event.nanos = profiler.last(FrameProfiler.Phase.FRAME);
+            event.allocated = profiler.getFrameAllocated();
+            event.viruses = world.getViruses().size();
+            event.projectiles = world.getProjectiles().size();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.keviqn;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Exact allocation and GC counts from the HotSpot management beans. Desktop JVMs only; the
+ * game itself falls back to {@link FrameProfiler.HeapProbe}.
+ */
+final class JvmMemoryProbe implements FrameProfiler.MemoryProbe {
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final long threadId = Thread.currentThread().getId();
+
+    @Override
+    public long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(threadId);
+    }
+
+    @Override
+    public long gcCount() {
+        long count = 0;
+        for (int i = 0; i < collectors.size(); i++) count += Math.max(0, collectors.get(i).getCollectionCount());
+        return count;
+    }
+}
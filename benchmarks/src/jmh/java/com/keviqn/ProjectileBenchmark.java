@@ -0,0 +1,47 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.RandomXS128;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Projectile flight plus the collision test against moving targets.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProjectileBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int projectiles;
+
+    private VirusStore store;
+    private Projectile[] inFlight;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = BenchmarkWorlds.scatteredViruses(projectiles, 3);
+        RandomXS128 random = new RandomXS128(3);
+        inFlight = new Projectile[projectiles];
+        for (int i = 0; i < projectiles; i++) {
+            inFlight[i] = new Projectile();
+            inFlight[i].init(BenchmarkWorlds.TOWER_X, BenchmarkWorlds.TOWER_Y, store.get(random.nextInt(store.size())), 3);
+        }
+    }
+
+    @Benchmark
+    public void updateAndCollide(Blackhole bh) {
+        store.updateAll(GameWorld.STEP, BenchmarkWorlds.TOWER_X, BenchmarkWorlds.TOWER_Y);
+        int hits = 0;
+        for (Projectile p : inFlight) {
+            p.update(GameWorld.STEP);
+            if (p.hasCollided()) hits++;
+        }
+        bh.consume(hits);
+    }
+}
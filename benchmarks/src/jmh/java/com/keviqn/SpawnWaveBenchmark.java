@@ -0,0 +1,39 @@
+package com.keviqn;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of spawning a wave, once the pools have warmed up: all of it at once, and the worst
+ * single tick of a streamed start (clearing the last wave plus one spawn budget).
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SpawnWaveBenchmark {
+    @Param({"1", "10", "50", "100", "500"})
+    public int wave;
+
+    private GameWorld world;
+
+    @Setup
+    public void setUp() {
+        world = BenchmarkWorlds.immortalWorld(wave, 5);
+    }
+
+    @Benchmark
+    public int spawnWave() {
+        world.startWave(wave);
+        return world.getViruses().size();
+    }
+
+    @Benchmark
+    public int firstTick() {
+        world.beginWave(wave);
+        return world.releaseSpawns(GameWorld.STEP);
+    }
+}
@@ -0,0 +1,193 @@
+package com.keviqn;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Monte Carlo balance runs: plays many seeded games per upgrade policy across all cores, with
+ * no rendering, and reports how far each policy gets.
+ * <p>
+ * Every policy plays the same seeds, so differences between policies aren't seed luck. Each game
+ * is single-threaded and deterministic, so results don't depend on the thread count. Prints the
+ * distribution of waves survived per policy and writes the mean GP curve (total GP earned when
+ * each wave starts) to a CSV file.
+ * <p>
+ * Run through {@code ./gradlew :benchmarks:evaluate}. Options: {@code --games N} (per policy,
+ * default 500), {@code --max-ticks N} (default 20 minutes of game time; games still
+ * running then count as surviving their current wave), {@code --threads N},
+ * {@code --policies FILE} (extra weighted policies, see {@link UpgradePolicies}),
+ * {@code --out FILE} (GP curve CSV, default build/balance/gp-curves.csv).
+ */
+public final class StrategyEvaluator {
+    // A decision every second of game time, with at most this many purchases each.
+    private static final int DECISION_TICKS = 60;
+    private static final int PURCHASES_PER_DECISION = 16;
+
+    private StrategyEvaluator() { }
+
+    /**
+     * How one game went.
+     */
+    static final class GameResult {
+        final int wavesSurvived;
+        final long ticks;
+        // Total GP earned when each wave started; index 0 is wave 1.
+        final long[] gpAtWave;
+        // Total GP earned by the end of the game.
+        final long totalGp;
+
+        GameResult(int wavesSurvived, long ticks, long[] gpAtWave, long totalGp) {
+            this.wavesSurvived = wavesSurvived;
+            this.ticks = ticks;
+            this.gpAtWave = gpAtWave;
+            this.totalGp = totalGp;
+        }
+    }
+
+    static GameResult play(UpgradePolicy policy, long seed, long maxTicks) {
+        GameWorld world = new GameWorld(seed);
+        long[] gpAtWave = new long[16];
+        gpAtWave[0] = world.getTotalGpEarned();
+        int lastWave = 1;
+        while (!world.isGameOver() && world.getTick() < maxTicks) {
+            if (world.getTick() % DECISION_TICKS == 0) policy.decide(world, PURCHASES_PER_DECISION);
+            world.step();
+            int wave = world.getCurrentWave();
+            if (wave != lastWave) {
+                if (wave > gpAtWave.length) gpAtWave = Arrays.copyOf(gpAtWave, Math.max(wave, gpAtWave.length * 2));
+                gpAtWave[wave - 1] = world.getTotalGpEarned();
+                lastWave = wave;
+            }
+        }
+        // A lost game didn't survive the wave it ended on.
+        int survived = world.isGameOver() ? world.getCurrentWave() - 1 : world.getCurrentWave();
+        return new GameResult(survived, world.getTick(), Arrays.copyOf(gpAtWave, lastWave),
+            world.getTotalGpEarned());
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 500;
+        long maxTicks = 60L * 60 * 20;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String policyFile = null;
+        String out = "build/balance/gp-curves.csv";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--max-ticks": maxTicks = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--policies": policyFile = args[++i]; break;
+                case "--out": out = args[++i]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Map<String, Supplier<UpgradePolicy>> policies = UpgradePolicies.builtIn();
+        if (policyFile != null) {
+            try (Reader reader = new FileReader(policyFile)) {
+                policies.putAll(UpgradePolicies.load(reader));
+            }
+        }
+
+        System.out.printf("%d games per policy, %d policies, %d threads, max %d ticks per game%n",
+            games, policies.size(), threads, maxTicks);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long totalTicks = 0;
+        List<String> names = new ArrayList<>(policies.keySet());
+        List<GameResult[]> results = new ArrayList<>();
+        try {
+            for (String name : names) {
+                final Supplier<UpgradePolicy> factory = policies.get(name);
+                final long ticks = maxTicks;
+                List<Future<GameResult>> futures = new ArrayList<>(games);
+                for (int g = 0; g < games; g++) {
+                    final long seed = g;
+                    futures.add(executor.submit(() -> play(factory.get(), seed, ticks)));
+                }
+                GameResult[] policyResults = new GameResult[games];
+                for (int g = 0; g < games; g++) {
+                    policyResults[g] = futures.get(g).get();
+                    totalTicks += policyResults[g].ticks;
+                }
+                results.add(policyResults);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%.1f s, %.0f ticks/s overall, %.0f ticks/s per thread%n%n", seconds,
+            totalTicks / seconds, totalTicks / seconds / threads);
+
+        System.out.printf("%-20s %7s %5s %5s %5s %5s %5s %5s %12s%n", "waves survived", "mean", "min", "p10", "p50", "p90",
+            "p99", "max", "GP (p50)");
+        for (int p = 0; p < names.size(); p++) {
+            GameResult[] policyResults = results.get(p);
+            int[] waves = new int[games];
+            long[] gp = new long[games];
+            double sum = 0;
+            for (int g = 0; g < games; g++) {
+                waves[g] = policyResults[g].wavesSurvived;
+                gp[g] = policyResults[g].totalGp;
+                sum += waves[g];
+            }
+            Arrays.sort(waves);
+            Arrays.sort(gp);
+            System.out.printf("%-20s %7.2f %5d %5d %5d %5d %5d %5d %12d%n", names.get(p), sum / games, waves[0],
+                percentile(waves, 0.1f), percentile(waves, 0.5f), percentile(waves, 0.9f), percentile(waves, 0.99f),
+                waves[games - 1], gp[(games - 1) / 2]);
+        }
+
+        writeCurves(Paths.get(out), names, results);
+        System.out.println();
+        System.out.println("GP curves: " + out);
+    }
+
+    private static int percentile(int[] sorted, float fraction) {
+        int rank = (int)Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.min(Math.max(rank, 0), sorted.length - 1)];
+    }
+
+    // One row per wave, one column per policy: mean total GP earned at the start of the wave,
+    // over the games that reached it, and how many did.
+    private static void writeCurves(Path file, List<String> names, List<GameResult[]> results) throws IOException {
+        int maxWave = 0;
+        for (GameResult[] policyResults : results) {
+            for (GameResult result : policyResults) maxWave = Math.max(maxWave, result.gpAtWave.length);
+        }
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.print("wave");
+            for (String name : names) writer.print("," + name + "," + name + " games");
+            writer.println();
+            for (int wave = 1; wave <= maxWave; wave++) {
+                writer.print(wave);
+                for (GameResult[] policyResults : results) {
+                    double sum = 0;
+                    int reached = 0;
+                    for (GameResult result : policyResults) {
+                        if (result.gpAtWave.length < wave) continue;
+                        sum += result.gpAtWave[wave - 1];
+                        reached++;
+                    }
+                    writer.print(reached == 0 ? "," : "," + (long)(sum / reached));
+                    writer.print("," + reached);
+                }
+                writer.println();
+            }
+        }
+    }
+}
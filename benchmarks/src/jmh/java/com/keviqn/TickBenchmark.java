@@ -0,0 +1,37 @@
+package com.keviqn;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One full simulation tick of a world in the middle of a wave, sequential and parallel.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TickBenchmark {
+    @Param({"10", "100", "1000"})
+    public int wave;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private GameWorld world;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        world = BenchmarkWorlds.immortalWorld(wave, 6);
+        if (parallel) world.setParallelUpdater(new ParallelUpdater());
+    }
+
+    @Benchmark
+    public long tick() {
+        world.step();
+        return world.getTick();
+    }
+}
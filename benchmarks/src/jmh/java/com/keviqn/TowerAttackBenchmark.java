@@ -0,0 +1,77 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Target acquisition: one ready shot per tower against a field of viruses, for each targeting
+ * strategy, with the main tower alone or joined by relays scattered over the field. At the
+ * wide range every tower reaches most of the field, which is where the cost would grow with
+ * towers times viruses if the per-cell tower fan-out weren't bounded.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TowerAttackBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int viruses;
+
+    @Param({"1", "16", "128"})
+    public int towers;
+
+    // Internet Speed level: 1 is the base 150 px range, 20 reaches 1100 px.
+    @Param({"1", "20"})
+    public int internetLevel;
+
+    @Param({"FIRST_ARRIVED", "NEAREST"})
+    public Targeting targeting;
+
+    private Tower tower;
+    private final Array<Tower> all = new Array<>(true, 16, Tower.class);
+    private TargetScheduler scheduler;
+    private final EntityArray<Projectile> fired = new EntityArray<>(Projectile.class, 16);
+    private final Pool<Projectile> pool = new Pool<Projectile>() {
+        @Override
+        protected Projectile newObject() {
+            return new Projectile();
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        tower = BenchmarkWorlds.newTower();
+        tower.setTargeting(targeting);
+        tower.upgrade(Upgrade.INTERNET_SPEED, internetLevel - 1);
+        all.add(tower);
+        RandomXS128 random = new RandomXS128(3);
+        for (int i = 1; i < towers; i++) {
+            all.add(new Tower(random.nextFloat() * GameWorld.WORLD_WIDTH, random.nextFloat() * GameWorld.WORLD_HEIGHT,
+                GameWorld.RELAY_SIZE, GameWorld.RELAY_SIZE, tower));
+        }
+        VirusStore store = BenchmarkWorlds.scatteredViruses(viruses, 2);
+        SpatialGrid grid = new SpatialGrid(GameWorld.WORLD_WIDTH, GameWorld.WORLD_HEIGHT, 150);
+        for (int i = 0; i < store.size(); i++) grid.insert(store.get(i));
+        scheduler = new TargetScheduler(grid);
+    }
+
+    @Benchmark
+    public void assign(Blackhole bh) {
+        // Exactly one cooldown of delta, so every tower has one shot ready.
+        bh.consume(scheduler.assign(all, 1f / tower.getProcessorSpeed(), pool, fired));
+        // Take the shots back so the field never fills up with pending damage.
+        for (int i = 0; i < fired.size(); i++) {
+            Projectile p = fired.get(i);
+            p.getTarget().addPendingDamage(-p.getDamage());
+            pool.free(p);
+        }
+        fired.clear();
+    }
+}
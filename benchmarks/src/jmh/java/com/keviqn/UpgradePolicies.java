@@ -0,0 +1,161 @@
+package com.keviqn;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * The built-in upgrade policies, plus weighted policies read from a config file.
+ * <p>
+ * Config files are properties files with one policy per line: a name, then upgrade:weight pairs.
+ * A weighted policy keeps each upgrade's level proportional to its weight, always topping up the
+ * one that is furthest behind. Upgrades left out have weight 0 and are never bought.
+ * <pre>
+ * balanced = SOFTWARE_VERSION:1, PROCESSOR_SPEED:1, STORAGE_SPACE:1, INTERNET_SPEED:1, GRAPHICS_CARD:1
+ * glass-cannon = PROCESSOR_SPEED:2, GRAPHICS_CARD:3
+ * </pre>
+ */
+final class UpgradePolicies {
+    private static final Upgrade[] UPGRADES = Upgrade.values();
+
+    private UpgradePolicies() { }
+
+    static Map<String, Supplier<UpgradePolicy>> builtIn() {
+        Map<String, Supplier<UpgradePolicy>> policies = new LinkedHashMap<>();
+        policies.put("greedy-cheapest", GreedyCheapest::new);
+        policies.put("round-robin", RoundRobin::new);
+        policies.put("damage-first", DamageFirst::new);
+        return policies;
+    }
+
+    /**
+     * Read weighted policies from a properties file, keeping the file's order.
+     */
+    static Map<String, Supplier<UpgradePolicy>> load(Reader reader) throws IOException {
+        final Map<String, Supplier<UpgradePolicy>> policies = new LinkedHashMap<>();
+        Properties properties = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                final float[] weights = parseWeights((String)key, (String)value);
+                policies.put((String)key, () -> new Weighted(weights));
+                return super.put(key, value);
+            }
+        };
+        properties.load(reader);
+        return policies;
+    }
+
+    private static float[] parseWeights(String name, String spec) {
+        float[] weights = new float[UPGRADES.length];
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+            int colon = entry.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException(name + ": expected UPGRADE:weight, got " + entry);
+            Upgrade upgrade = Upgrade.valueOf(entry.substring(0, colon).trim());
+            float weight = Float.parseFloat(entry.substring(colon + 1).trim());
+            if (weight < 0) throw new IllegalArgumentException(name + ": negative weight for " + upgrade);
+            weights[upgrade.ordinal()] = weight;
+        }
+        return weights;
+    }
+
+    /**
+     * Always buy one level of whatever is cheapest right now; ties go to the lower level.
+     */
+    static class GreedyCheapest implements UpgradePolicy {
+        @Override
+        public void decide(GameWorld world, int maxPurchases) {
+            Tower tower = world.getTower();
+            for (int n = 0; n < maxPurchases; n++) {
+                Upgrade best = null;
+                for (Upgrade upgrade : UPGRADES) {
+                    if (best == null || tower.getPrice(upgrade) < tower.getPrice(best)
+                        || tower.getPrice(upgrade) == tower.getPrice(best) && tower.getLevel(upgrade) < tower.getLevel(best)) {
+                        best = upgrade;
+                    }
+                }
+                if (!world.purchase(best)) return;
+            }
+        }
+    }
+
+    /**
+     * Buy one level of each upgrade in turn, waiting for the next one to become affordable.
+     */
+    static class RoundRobin implements UpgradePolicy {
+        private int next;
+
+        @Override
+        public void decide(GameWorld world, int maxPurchases) {
+            for (int n = 0; n < maxPurchases; n++) {
+                if (!world.purchase(UPGRADES[next])) return;
+                next = (next + 1) % UPGRADES.length;
+            }
+        }
+    }
+
+    /**
+     * Everything into damage, then fire rate, then range; defence and storage only once those
+     * are unaffordable.
+     */
+    static class DamageFirst implements UpgradePolicy {
+        private static final Upgrade[] PRIORITY = {
+            Upgrade.GRAPHICS_CARD, Upgrade.PROCESSOR_SPEED, Upgrade.INTERNET_SPEED,
+            Upgrade.STORAGE_SPACE, Upgrade.SOFTWARE_VERSION
+        };
+
+        @Override
+        public void decide(GameWorld world, int maxPurchases) {
+            int purchases = 0;
+            for (Upgrade upgrade : PRIORITY) {
+                if (purchases == maxPurchases) return;
+                if (world.purchaseMax(upgrade) > 0) purchases++;
+            }
+        }
+    }
+
+    /**
+     * Keep levels in proportion to fixed weights. Each purchase brings the upgrade that is
+     * furthest below its share up to the next one's share, in a single bulk buy.
+     */
+    static class Weighted implements UpgradePolicy {
+        private final float[] weights;
+
+        Weighted(float[] weights) {
+            this.weights = weights;
+        }
+
+        @Override
+        public void decide(GameWorld world, int maxPurchases) {
+            Tower tower = world.getTower();
+            for (int n = 0; n < maxPurchases; n++) {
+                Upgrade lowest = null, runnerUp = null;
+                for (Upgrade upgrade : UPGRADES) {
+                    if (weights[upgrade.ordinal()] == 0) continue;
+                    if (lowest == null || ratio(tower, upgrade) < ratio(tower, lowest)) {
+                        runnerUp = lowest;
+                        lowest = upgrade;
+                    } else if (runnerUp == null || ratio(tower, upgrade) < ratio(tower, runnerUp)) {
+                        runnerUp = upgrade;
+                    }
+                }
+                if (lowest == null) return;
+                int count = 1;
+                if (runnerUp != null) {
+                    float target = ratio(tower, runnerUp) * weights[lowest.ordinal()];
+                    count = Math.max(1, (int)Math.ceil(target - tower.getLevel(lowest)));
+                }
+                count = Math.min(count, world.getAffordableCount(lowest, count));
+                if (count == 0 || !world.purchase(lowest, count)) return;
+            }
+        }
+
+        private float ratio(Tower tower, Upgrade upgrade) {
+            return tower.getLevel(upgrade) / weights[upgrade.ordinal()];
+        }
+    }
+}
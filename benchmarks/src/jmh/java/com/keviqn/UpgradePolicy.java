@@ -0,0 +1,13 @@
+package com.keviqn;
+
+/**
+ * A scripted player for headless balance runs: decides what to buy with the current balance.
+ * Instances keep per-game state, so every game gets its own.
+ */
+interface UpgradePolicy {
+    /**
+     * Spend GP. Called between ticks, once per decision interval. A policy may make up to
+     * maxPurchases purchase calls, which stands in for how fast a player can click.
+     */
+    void decide(GameWorld world, int maxPurchases);
+}
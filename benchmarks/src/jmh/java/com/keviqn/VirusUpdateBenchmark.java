@@ -0,0 +1,45 @@
+package com.keviqn;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Virus movement, both while approaching the tower and while circling it,
+ * through the bulk kernel and through the per-entity view.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class VirusUpdateBenchmark {
+    @Param({"approach", "circling"})
+    public String phase;
+
+    @Param({"1000", "10000", "100000"})
+    public int viruses;
+
+    private VirusStore store;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = phase.equals("circling")
+            ? BenchmarkWorlds.circlingViruses(viruses, 1)
+            : BenchmarkWorlds.scatteredViruses(viruses, 1);
+    }
+
+    @Benchmark
+    public void bulkUpdate() {
+        store.updateAll(GameWorld.STEP, BenchmarkWorlds.TOWER_X, BenchmarkWorlds.TOWER_Y);
+    }
+
+    @Benchmark
+    public void perEntityUpdate() {
+        for (int i = 0; i < store.size(); i++) {
+            store.get(i).update(GameWorld.STEP, BenchmarkWorlds.TOWER_X, BenchmarkWorlds.TOWER_Y);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.keviqn;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Shared asset cache on top of libGDX's AssetManager.
+ * Every file is decoded and uploaded once no matter how many users borrow it. Each
+ * {@link Handle} holds one reference; the asset is unloaded when the last handle is released.
+ * <p>
+ * At startup {@link #preload()} queues everything in the asset list, and the loading screen
+ * drives {@link #update(int)} until it is all in. Preloaded assets keep a reference of their
+ * own, so borrowing one later returns at once and releasing it never unloads it.
+ */
+public class Assets implements Disposable {
+
+    // World sprites, packed from assets-raw/world/ by the packTextures Gradle task.
+    public static final String WORLD_ATLAS = "world.atlas";
+    public static final String TOWER = "tower";
+    public static final String VIRUS = "virus";
+    public static final String PROJECTILE = "zap";
+    // Plain white square, tinted to draw map cells.
+    public static final String TERRAIN = "cell";
+
+    // Map new games are played on. See TerrainMap for the format.
+    public static final String DEFAULT_MAP = "maps/default.map";
+
+    public static final String GP = "gp1.png";
+
+    // The one UI skin, shared by every screen.
+    public static final String SKIN = "uiskin.json";
+    // Every file under assets/, one path per line, written by the generateAssetList Gradle task.
+    public static final String ASSET_LIST = "assets.txt";
+
+    private final AssetManager manager = new AssetManager();
+
+    /**
+     * A borrowed reference to a loaded asset. Release it exactly once when done.
+     */
+    public class Handle<T> implements Disposable {
+        private final String path;
+        private T asset;
+
+        private Handle(String path, T asset) {
+            this.path = path;
+            this.asset = asset;
+        }
+
+        public T get() {
+            if (asset == null) throw new IllegalStateException("Handle for " + path + " already released");
+            return asset;
+        }
+
+        @Override
+        public void dispose() {
+            if (asset == null) return;
+            asset = null;
+            manager.unload(path);
+        }
+    }
+
+    /**
+     * Borrow an asset, loading it synchronously if nobody holds it yet.
+     */
+    public <T> Handle<T> acquire(String path, Class<T> type) {
+        // Every load() call bumps the manager's reference count, even for loaded assets.
+        manager.load(path, type);
+        manager.finishLoadingAsset(path);
+        return new Handle<>(path, manager.get(path, type));
+    }
+
+    public Handle<Texture> acquireTexture(String path) {
+        return acquire(path, Texture.class);
+    }
+
+    public Handle<TextureAtlas> acquireAtlas(String path) {
+        return acquire(path, TextureAtlas.class);
+    }
+
+    /**
+     * Queue every file in the asset list that has a loader. Without a list (a build that
+     * skipped the Gradle task), queue the ones the game can't start without.
+     */
+    public void preload() {
+        FileHandle list = Gdx.files.internal(ASSET_LIST);
+        String[] paths = list.exists() ? list.readString().split("\r?\n") : new String[] {SKIN, WORLD_ATLAS, GP};
+        for (String path : paths) {
+            Class<?> type = typeOf(path.trim());
+            if (type != null) manager.load(path.trim(), type);
+        }
+    }
+
+    // Loader type for a listed file, or null to leave it alone. Atlas pages come in with their
+    // atlas and skin fonts with their skin; a skin's atlas shares its name.
+    private static Class<?> typeOf(String path) {
+        String extension = path.substring(path.lastIndexOf('.') + 1);
+        boolean hasAtlas = Gdx.files.internal(path.substring(0, path.length() - extension.length()) + "atlas").exists();
+        switch (extension) {
+            case "atlas":
+                return TextureAtlas.class;
+            case "json":
+                return hasAtlas ? Skin.class : null;
+            case "png":
+            case "jpg":
+                return hasAtlas ? null : Texture.class;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Load for up to the given time. Returns true once everything queued is in.
+     */
+    public boolean update(int millis) {
+        return manager.update(millis);
+    }
+
+    /**
+     * Fraction of the queued assets loaded so far, 0 to 1.
+     */
+    public float getProgress() {
+        return manager.getProgress();
+    }
+
+    /**
+     * The shared UI skin. Owned here; screens must not dispose it.
+     */
+    public Skin getSkin() {
+        if (!manager.isLoaded(SKIN)) {
+            manager.load(SKIN, Skin.class);
+            manager.finishLoadingAsset(SKIN);
+        }
+        return manager.get(SKIN, Skin.class);
+    }
+
+    public int getReferenceCount(String path) {
+        return manager.isLoaded(path) ? manager.getReferenceCount(path) : 0;
+    }
+
+    @Override
+    public void dispose() {
+        manager.dispose();
+    }
+}
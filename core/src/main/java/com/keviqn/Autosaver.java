@@ -0,0 +1,133 @@
+package com.keviqn;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saves a running game without stalling the frame that asks for it.
+ * <p>
+ * {@link #save} serializes the world into a reused in-memory buffer on the calling (render)
+ * thread, which takes microseconds. A background thread then adds the header and checksum,
+ * writes a temporary file, fsyncs it and renames it over the previous save, so a crash at any
+ * point leaves either the old save or the new one, never a torn file.
+ */
+public class Autosaver implements Disposable {
+
+    // Exposes the backing array so the writer thread can use it without a copy.
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(64 * 1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private final FileHandle file;
+    private final FileHandle tempFile;
+    private final Buffer buffer = new Buffer();
+    private final DataOutputStream bufferOut = new DataOutputStream(buffer);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Autosaver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The write in progress, if any. Only touched from the render thread.
+    private Future<?> pending;
+
+    public Autosaver(FileHandle file) {
+        this.file = file;
+        this.tempFile = file.sibling(file.name() + ".tmp");
+    }
+
+    /**
+     * Snapshot the game and write it in the background. If the previous save is still being
+     * written the snapshot is skipped and false is returned; the next one will catch up.
+     */
+    public boolean save(GameWorld world, Replay replay) {
+        if (pending != null && !pending.isDone()) return false;
+        try {
+            buffer.reset();
+            SaveGame.writePayload(bufferOut, world, replay);
+            bufferOut.flush();
+        } catch (IOException e) {
+            Gdx.app.error("Autosaver", "Could not snapshot the game", e);
+            return false;
+        }
+        final long seed = world.getSeed();
+        final int length = buffer.size();
+        pending = writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                write(seed, length);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Save and wait until the file is on disk. For when the app may not get another chance,
+     * like {@code pause()} on Android.
+     */
+    public void saveNow(GameWorld world, Replay replay) {
+        finish();
+        save(world, replay);
+        finish();
+    }
+
+    /**
+     * Remove the save, for example once the game it belongs to is over.
+     */
+    public void delete() {
+        finish();
+        file.delete();
+        tempFile.delete();
+    }
+
+    // Block until the write in progress, if any, has completed.
+    private void finish() {
+        if (pending == null) return;
+        try {
+            pending.get();
+        } catch (Exception e) {
+            Gdx.app.error("Autosaver", "Save did not complete", e);
+        }
+        pending = null;
+    }
+
+    // Runs on the writer thread. The render thread leaves the buffer alone until this is done.
+    private void write(long seed, int length) {
+        File target = file.file();
+        File temp = tempFile.file();
+        File parent = target.getParentFile();
+        if (parent != null) parent.mkdirs();
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            SaveGame.writeFile(out, seed, buffer.array(), length);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Gdx.app.error("Autosaver", "Could not write " + temp.getPath(), e);
+            return;
+        }
+        // rename() replaces the target atomically on POSIX filesystems, which covers Android.
+        // Windows refuses to rename over an existing file, so fall back to delete and retry there.
+        if (!temp.renameTo(target) && !(target.delete() && temp.renameTo(target))) {
+            Gdx.app.error("Autosaver", "Could not replace " + target.getPath());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        finish();
+        writer.shutdown();
+    }
+}
@@ -1,11 +1,14 @@
 package com.keviqn;
 
-import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
 
 public class CombatUtils {
-    public static float calculateDamage(float attackerAttack, float attackerStrength, float defenderDefense) {
-        float accuracyRoll = MathUtils.random(0, attackerAttack);
-        float damageRoll = MathUtils.random(0, attackerStrength);
+    /**
+     * Roll accuracy and damage with the game's own RNG so results are reproducible from its seed.
+     */
+    public static float calculateDamage(RandomXS128 random, float attackerAttack, float attackerStrength, float defenderDefense) {
+        float accuracyRoll = random.nextFloat() * attackerAttack;
+        float damageRoll = random.nextFloat() * attackerStrength;
         return (accuracyRoll > defenderDefense) ? damageRoll : 0;
     }
 }
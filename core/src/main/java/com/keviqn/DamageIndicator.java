@@ -1,44 +1,64 @@
 package com.keviqn;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Pool;
 
-public class DamageIndicator {
-    private float x, y;
-    private String text;
+/**
+ * A floating damage number. Instances are pooled by {@link DamageIndicators} and carry no
+ * font of their own; the text lives in a reusable builder so showing a hit allocates nothing.
+ */
+public class DamageIndicator implements Pool.Poolable {
+    static final float DURATION = 0.5f;
+    // Rise speed of coalesced numbers, in world pixels per second.
+    private static final float RISE_SPEED = 120f;
+
+    float x, y;
+    final StringBuilder text = new StringBuilder(8);
     private float timer;
-    private final float duration = 0.5f;
-    private Color color;
-    private BitmapFont font;
+    private float total;
+    private boolean rising;
+    Virus target;
+    int targetGeneration;
 
-    public DamageIndicator(float x, float y, float damage) {
+    void init(Virus target, float x, float y, float damage, boolean rising) {
+        this.target = target;
+        targetGeneration = target.getGeneration();
         this.x = x;
         this.y = y;
-        if(damage > 0) {
-            text = String.valueOf((int)damage);
-            color = Color.RED;
-        } else {
-            text = "0";
-            color = Color.BLUE;
-        }
-        timer = duration;
-        font = new BitmapFont();  // Use default font (could be replaced by a high-res one)
-        font.getData().setScale(5);
-        font.setColor(color);
+        this.rising = rising;
+        total = 0;
+        add(damage);
+    }
+
+    /**
+     * Merge another hit into this number and restart its timer.
+     */
+    void add(float damage) {
+        total += damage;
+        text.setLength(0);
+        text.append((int)total);
+        timer = DURATION;
     }
 
     public void update(float delta) {
         timer -= delta;
+        if (rising) y += RISE_SPEED * delta;
     }
 
     public boolean isExpired() {
         return timer <= 0;
     }
 
-    public void render(SpriteBatch batch) {
-        font.setColor(color);
-        font.draw(batch, text, x, y);
+    public Color getColor() {
+        return total > 0 ? Color.RED : Color.BLUE;
+    }
+
+    @Override
+    public void reset() {
+        target = null;
+        text.setLength(0);
+        timer = 0;
+        total = 0;
+        rising = false;
     }
 }
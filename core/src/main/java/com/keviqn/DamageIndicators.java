@@ -0,0 +1,94 @@
+package com.keviqn;
+
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Owns every live damage number: one shared font, a pool of indicators and a glyph cache
+ * that is rebuilt once per frame and drawn in a single pass.
+ * <p>
+ * With coalescing on, hits on the same virus within {@link DamageIndicator#DURATION} merge into
+ * one rising number, so the indicator count is bounded by live targets rather than hit rate.
+ */
+public class DamageIndicators implements Disposable {
+
+    private final BitmapFont font;
+    private final BitmapFontCache cache;
+    private final EntityArray<DamageIndicator> active = new EntityArray<>(DamageIndicator.class, 64);
+    private final ObjectMap<Virus, DamageIndicator> byTarget = new ObjectMap<>();
+    private final Pool<DamageIndicator> pool = new Pool<DamageIndicator>(64) {
+        @Override
+        protected DamageIndicator newObject() {
+            return new DamageIndicator();
+        }
+    };
+    private boolean coalescing = true;
+
+    public DamageIndicators() {
+        font = new BitmapFont();  // Use default font (could be replaced by a high-res one)
+        font.getData().setScale(5);
+        cache = font.newFontCache();
+    }
+
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * Show a hit on the given virus.
+     */
+    public void hit(Virus target, float damage) {
+        if (coalescing) {
+            DamageIndicator existing = byTarget.get(target);
+            // A recycled view is a different virus; don't merge into the old one's number.
+            if (existing != null && existing.targetGeneration == target.getGeneration()) {
+                existing.add(damage);
+                return;
+            }
+        }
+        DamageIndicator di = pool.obtain();
+        di.init(target, target.getCenterX(), target.getCenterY(), damage, coalescing);
+        active.add(di);
+        if (coalescing) byTarget.put(target, di);
+    }
+
+    public void update(float delta) {
+        for (int i = active.size() - 1; i >= 0; i--) {
+            DamageIndicator di = active.get(i);
+            di.update(delta);
+            if (di.isExpired()) {
+                active.swapRemove(i);
+                if (byTarget.get(di.target) == di) byTarget.remove(di.target);
+                pool.free(di);
+            }
+        }
+    }
+
+    public void render(SpriteBatch batch) {
+        if (active.size() == 0) return;
+        cache.clear();
+        for (int i = 0; i < active.size(); i++) {
+            DamageIndicator di = active.get(i);
+            cache.setColor(di.getColor());
+            cache.addText(di.text, di.x, di.y);
+        }
+        cache.draw(batch);
+    }
+
+    public int size() {
+        return active.size();
+    }
+
+    @Override
+    public void dispose() {
+        font.dispose();
+    }
+}
@@ -0,0 +1,90 @@
+package com.keviqn;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Flat entity container with cheap removal.
+ * <p>
+ * {@link #swapRemove} is O(1) but reorders. {@link #remove} just clears the slot and counts it;
+ * the next {@link #compact} closes every gap in one order-preserving pass. Use the latter when
+ * iteration order matters (simulation state), and remember removed slots read null until then.
+ */
+public class EntityArray<T> {
+    private T[] items;
+    private int size;
+    private int holes;
+
+    @SuppressWarnings("unchecked")
+    public EntityArray(Class<T> type, int capacity) {
+        items = (T[])Array.newInstance(type, Math.max(capacity, 8));
+    }
+
+    public void add(T item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size + (size >> 1) + 1);
+        }
+        items[size++] = item;
+    }
+
+    public T get(int index) {
+        return items[index];
+    }
+
+    /**
+     * Number of slots, including ones removed since the last compaction.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of live entities.
+     */
+    public int liveCount() {
+        return size - holes;
+    }
+
+    /**
+     * Clear a slot without moving anything. Returns what was there.
+     */
+    public T remove(int index) {
+        T item = items[index];
+        if (item != null) {
+            items[index] = null;
+            holes++;
+        }
+        return item;
+    }
+
+    /**
+     * Remove a slot by moving the last entity into it. O(1), but changes order.
+     */
+    public T swapRemove(int index) {
+        T item = items[index];
+        items[index] = items[--size];
+        items[size] = null;
+        return item;
+    }
+
+    /**
+     * Close the gaps left by {@link #remove}, keeping the order of what's left.
+     */
+    public void compact() {
+        if (holes == 0) return;
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            T item = items[r];
+            if (item != null) items[w++] = item;
+        }
+        for (int i = w; i < size; i++) items[i] = null;
+        size = w;
+        holes = 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) items[i] = null;
+        size = 0;
+        holes = 0;
+    }
+}
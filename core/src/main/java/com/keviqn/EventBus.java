@@ -0,0 +1,58 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.SnapshotArray;
+
+/**
+ * Small synchronous event bus for the simulation. Listeners subscribe per event type and are
+ * called immediately, on the posting thread, in subscription order.
+ * <p>
+ * Posting allocates nothing: event objects are reused (one per nesting level, for listeners
+ * that post from inside a callback), and posting a type nobody listens to is just a size check.
+ */
+public class EventBus {
+    private static final int MAX_DEPTH = 8;
+
+    public interface Listener {
+        void onEvent(GameEvent event);
+    }
+
+    private final SnapshotArray<Listener>[] listeners;
+    private final GameEvent[] events = new GameEvent[MAX_DEPTH];
+    private int depth;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public EventBus() {
+        GameEvent.Type[] types = GameEvent.Type.values();
+        listeners = new SnapshotArray[types.length];
+        for (int i = 0; i < types.length; i++) listeners[i] = new SnapshotArray<>(false, 4, Listener.class);
+        for (int i = 0; i < MAX_DEPTH; i++) events[i] = new GameEvent();
+    }
+
+    public void subscribe(GameEvent.Type type, Listener listener) {
+        listeners[type.ordinal()].add(listener);
+    }
+
+    public void unsubscribe(GameEvent.Type type, Listener listener) {
+        listeners[type.ordinal()].removeValue(listener, true);
+    }
+
+    void post(GameEvent.Type type) {
+        post(type, null, 0, 0, null);
+    }
+
+    void post(GameEvent.Type type, Virus virus, float amount, int value, Upgrade upgrade) {
+        SnapshotArray<Listener> list = listeners[type.ordinal()];
+        if (list.size == 0) return;
+        if (depth == MAX_DEPTH) throw new IllegalStateException("Events nested too deeply");
+        GameEvent event = events[depth++];
+        event.set(type, virus, amount, value, upgrade);
+        Listener[] items = list.begin();
+        try {
+            for (int i = 0, n = list.size; i < n; i++) items[i].onEvent(event);
+        } finally {
+            list.end();
+            event.set(null, null, 0, 0, null);
+            depth--;
+        }
+    }
+}
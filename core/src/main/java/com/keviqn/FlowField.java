@@ -0,0 +1,375 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+/**
+ * Shortest-path directions toward one goal over a {@link TerrainMap}. One Dijkstra pass from
+ * the goal gives every cell its travel cost to the goal; each cell then points at the
+ * neighbour (of eight) that is cheapest to continue from. A mover just looks up the direction
+ * of the cell it is in, so pathing costs the same per mover however complicated the map is.
+ * <p>
+ * Cells near the goal, walls and cells the goal can't be reached from have no direction; movers
+ * there head straight for the goal. Diagonal steps may not cut the corner of a wall.
+ * <p>
+ * Cost changes made through {@link #setCost} are applied by the next {@link #update}. When only
+ * a few cells changed, that repairs the field locally: cells whose route ran through a cell
+ * that got dearer are cleared and re-solved from their neighbours, and cheaper cells push their
+ * savings outward. Either way the result is the same field a full rebuild would give.
+ */
+public class FlowField {
+    // Past this share of changed cells, a full rebuild is cheaper than a repair.
+    private static final int REPAIR_LIMIT_DIVISOR = 8;
+    private static final float DIAGONAL = (float)Math.sqrt(2);
+    // Neighbour offsets; the first four are orthogonal.
+    private static final int[] STEP_COLUMN = {1, -1, 0, 0, 1, -1, 1, -1};
+    private static final int[] STEP_ROW = {0, 0, 1, -1, 1, 1, -1, -1};
+
+    private final TerrainMap terrain;
+    private final int columns, rows;
+    private final float goalX, goalY;
+    private final boolean[] goal;
+
+    // Travel cost to the goal, and the neighbour the route continues through (-1 for none).
+    private final float[] distance;
+    private final int[] next;
+    // Unit direction of travel per cell; (0, 0) means head straight for the goal. Read by the
+    // movement kernel.
+    final float[] directionX, directionY;
+    private final float[] unitX = new float[8], unitY = new float[8];
+
+    private final IntArray raised = new IntArray();
+    private final IntArray lowered = new IntArray();
+    private final boolean[] marked;
+    private final IntArray touched = new IntArray();
+    private final boolean[] touchedFlags;
+    private int[] heapCells;
+    private float[] heapKeys;
+    private int heapSize;
+
+    private int rebuilds, repairs;
+
+    /**
+     * Build the field over the given map, which it then owns. Cells within one and a half cells
+     * of (goalX, goalY) count as the goal.
+     */
+    public FlowField(TerrainMap terrain, float goalX, float goalY) {
+        this.terrain = terrain;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        columns = terrain.getColumns();
+        rows = terrain.getRows();
+        int cells = terrain.getCellCount();
+        goal = new boolean[cells];
+        distance = new float[cells];
+        next = new int[cells];
+        directionX = new float[cells];
+        directionY = new float[cells];
+        marked = new boolean[cells];
+        touchedFlags = new boolean[cells];
+        heapCells = new int[cells * 2];
+        heapKeys = new float[cells * 2];
+
+        float w = terrain.getCellWidth(), h = terrain.getCellHeight();
+        for (int k = 0; k < 8; k++) {
+            float length = (float)Math.sqrt(STEP_COLUMN[k] * w * STEP_COLUMN[k] * w + STEP_ROW[k] * h * STEP_ROW[k] * h);
+            unitX[k] = STEP_COLUMN[k] * w / length;
+            unitY[k] = STEP_ROW[k] * h / length;
+        }
+        float radius = 1.5f * Math.max(w, h);
+        for (int cell = 0; cell < cells; cell++) {
+            float dx = terrain.getCellX(cell) + w / 2f - goalX;
+            float dy = terrain.getCellY(cell) + h / 2f - goalY;
+            goal[cell] = dx * dx + dy * dy <= radius * radius;
+        }
+        goal[terrain.cellAt(goalX, goalY)] = true;
+        rebuild();
+    }
+
+    public TerrainMap getTerrain() {
+        return terrain;
+    }
+
+    public float getGoalX() {
+        return goalX;
+    }
+
+    public float getGoalY() {
+        return goalY;
+    }
+
+    /**
+     * Cell containing the world point, clamped to the grid.
+     */
+    public int cellAt(float x, float y) {
+        return terrain.cellAt(x, y);
+    }
+
+    /**
+     * True for cells near enough the goal that movers there head straight for it.
+     */
+    public boolean isGoal(int cell) {
+        return goal[cell];
+    }
+
+    /**
+     * Travel cost from the cell to the goal, in open-ground cells; infinite if unreachable.
+     */
+    public float getDistance(int cell) {
+        return distance[cell];
+    }
+
+    /**
+     * Remaining travel from a world point to the goal, in world units along the field's route.
+     * Where the field has no direction, which is the straight line movers take there.
+     */
+    public float pathDistance(float x, float y) {
+        int cell = terrain.cellAt(x, y);
+        if (directionX[cell] == 0 && directionY[cell] == 0) {
+            float dx = goalX - x, dy = goalY - y;
+            return (float)Math.sqrt(dx * dx + dy * dy);
+        }
+        return distance[cell] * terrain.getCellWidth();
+    }
+
+    public int getRebuildCount() {
+        return rebuilds;
+    }
+
+    public int getRepairCount() {
+        return repairs;
+    }
+
+    /**
+     * Change a cell's cost (or block it with {@link TerrainMap#BLOCKED}). Takes effect at the
+     * next {@link #update}.
+     */
+    public void setCost(int column, int row, int cost) {
+        int cell = terrain.cell(column, row);
+        int old = terrain.getCost(cell);
+        if (cost == old) return;
+        terrain.setCost(cell, cost);
+        if (cost == TerrainMap.BLOCKED || (old != TerrainMap.BLOCKED && cost > old)) raised.add(cell);
+        else lowered.add(cell);
+    }
+
+    /**
+     * Apply pending cost changes. Does nothing if there are none.
+     */
+    public void update() {
+        int changes = raised.size + lowered.size;
+        if (changes == 0) return;
+        if (changes * REPAIR_LIMIT_DIVISOR > terrain.getCellCount()) rebuild();
+        else repair();
+    }
+
+    /**
+     * Solve the whole field from scratch.
+     */
+    public void rebuild() {
+        raised.clear();
+        lowered.clear();
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        heapSize = 0;
+        for (int cell = 0; cell < distance.length; cell++) {
+            if (goal[cell] && !terrain.isBlocked(cell)) {
+                distance[cell] = 0;
+                push(cell, 0);
+            }
+        }
+        propagate();
+        for (int cell = 0; cell < distance.length; cell++) pointDownhill(cell);
+        touched.clear();
+        Arrays.fill(touchedFlags, false);
+        rebuilds++;
+    }
+
+    private void repair() {
+        heapSize = 0;
+        // Everything routed through a cell that got dearer may now have a better route elsewhere:
+        // clear the cell and its whole upstream subtree. A new wall also closes the diagonals
+        // around its corners, so its neighbours' subtrees go too.
+        IntArray cleared = raised;
+        int roots = cleared.size;
+        for (int i = 0; i < roots; i++) marked[cleared.get(i)] = true;
+        for (int i = 0; i < roots; i++) {
+            int cell = cleared.get(i);
+            if (!terrain.isBlocked(cell)) continue;
+            int column = terrain.columnOf(cell), row = terrain.rowOf(cell);
+            for (int k = 0; k < 8; k++) {
+                int c = column + STEP_COLUMN[k], r = row + STEP_ROW[k];
+                if (c < 0 || c >= columns || r < 0 || r >= rows || marked[r * columns + c]) continue;
+                marked[r * columns + c] = true;
+                cleared.add(r * columns + c);
+            }
+        }
+        for (int i = 0; i < cleared.size; i++) {
+            int cell = cleared.get(i);
+            int column = terrain.columnOf(cell), row = terrain.rowOf(cell);
+            for (int k = 0; k < 8; k++) {
+                int c = column - STEP_COLUMN[k], r = row - STEP_ROW[k];
+                if (c < 0 || c >= columns || r < 0 || r >= rows) continue;
+                int upstream = r * columns + c;
+                if (next[upstream] == cell && !marked[upstream]) {
+                    marked[upstream] = true;
+                    cleared.add(upstream);
+                }
+            }
+        }
+        for (int i = 0; i < cleared.size; i++) {
+            int cell = cleared.get(i);
+            distance[cell] = Float.POSITIVE_INFINITY;
+            touch(cell);
+        }
+        // Re-solve the cleared cells and the cheaper ones from their neighbours, then let any
+        // improvement spread. A removed wall opens diagonals around it, so its neighbours are
+        // re-solved too.
+        for (int i = 0; i < cleared.size; i++) seed(cleared.get(i));
+        for (int i = 0; i < lowered.size; i++) {
+            int cell = lowered.get(i);
+            seed(cell);
+            int column = terrain.columnOf(cell), row = terrain.rowOf(cell);
+            for (int k = 0; k < 8; k++) {
+                int c = column + STEP_COLUMN[k], r = row + STEP_ROW[k];
+                if (c >= 0 && c < columns && r >= 0 && r < rows) seed(r * columns + c);
+            }
+        }
+        propagate();
+
+        // Directions only change where a distance did, or next to one.
+        for (int i = 0; i < touched.size; i++) {
+            int cell = touched.get(i);
+            pointDownhill(cell);
+            int column = terrain.columnOf(cell), row = terrain.rowOf(cell);
+            for (int k = 0; k < 8; k++) {
+                int c = column + STEP_COLUMN[k], r = row + STEP_ROW[k];
+                if (c >= 0 && c < columns && r >= 0 && r < rows) pointDownhill(r * columns + c);
+            }
+        }
+        for (int i = 0; i < cleared.size; i++) marked[cleared.get(i)] = false;
+        for (int i = 0; i < touched.size; i++) touchedFlags[touched.get(i)] = false;
+        touched.clear();
+        raised.clear();
+        lowered.clear();
+        repairs++;
+    }
+
+    // Best distance for a cell given its neighbours' current distances.
+    private void seed(int cell) {
+        if (terrain.isBlocked(cell)) return;
+        float best = goal[cell] ? 0 : Float.POSITIVE_INFINITY;
+        int column = terrain.columnOf(cell), row = terrain.rowOf(cell);
+        float cost = terrain.getCost(cell);
+        for (int k = 0; k < 8; k++) {
+            if (!canStep(column, row, k)) continue;
+            float d = distance[(row + STEP_ROW[k]) * columns + column + STEP_COLUMN[k]] + cost * (k < 4 ? 1 : DIAGONAL);
+            if (d < best) best = d;
+        }
+        if (best < distance[cell]) {
+            distance[cell] = best;
+            touch(cell);
+        }
+        if (best < Float.POSITIVE_INFINITY) push(cell, best);
+    }
+
+    // Dijkstra from whatever is on the heap. Entries left behind by a later improvement are
+    // skipped when popped.
+    private void propagate() {
+        while (heapSize > 0) {
+            float key = heapKeys[0];
+            int cell = pop();
+            if (key > distance[cell]) continue;
+            int column = terrain.columnOf(cell), row = terrain.rowOf(cell);
+            for (int k = 0; k < 8; k++) {
+                // Relax the neighbour that would step into this cell.
+                int c = column - STEP_COLUMN[k], r = row - STEP_ROW[k];
+                if (c < 0 || c >= columns || r < 0 || r >= rows || !canStep(c, r, k)) continue;
+                int upstream = r * columns + c;
+                if (terrain.isBlocked(upstream)) continue;
+                float d = key + terrain.getCost(upstream) * (k < 4 ? 1 : DIAGONAL);
+                if (d < distance[upstream]) {
+                    distance[upstream] = d;
+                    touch(upstream);
+                    push(upstream, d);
+                }
+            }
+        }
+    }
+
+    // Point the cell at the neighbour its distance came from. Ties go to the lowest neighbour
+    // index, so a repaired field matches a rebuilt one exactly.
+    private void pointDownhill(int cell) {
+        next[cell] = -1;
+        directionX[cell] = 0;
+        directionY[cell] = 0;
+        if (goal[cell] || terrain.isBlocked(cell) || distance[cell] == Float.POSITIVE_INFINITY) return;
+        int column = terrain.columnOf(cell), row = terrain.rowOf(cell);
+        float cost = terrain.getCost(cell);
+        float best = Float.POSITIVE_INFINITY;
+        int bestStep = -1;
+        for (int k = 0; k < 8; k++) {
+            if (!canStep(column, row, k)) continue;
+            float d = distance[(row + STEP_ROW[k]) * columns + column + STEP_COLUMN[k]] + cost * (k < 4 ? 1 : DIAGONAL);
+            if (d < best) {
+                best = d;
+                bestStep = k;
+            }
+        }
+        if (bestStep < 0) return;
+        next[cell] = (row + STEP_ROW[bestStep]) * columns + column + STEP_COLUMN[bestStep];
+        directionX[cell] = unitX[bestStep];
+        directionY[cell] = unitY[bestStep];
+    }
+
+    // True if a mover may step from (column, row) to its k-th neighbour.
+    private boolean canStep(int column, int row, int k) {
+        int c = column + STEP_COLUMN[k], r = row + STEP_ROW[k];
+        if (c < 0 || c >= columns || r < 0 || r >= rows) return false;
+        if (terrain.isBlocked(r * columns + c)) return false;
+        if (k < 4) return true;
+        return !terrain.isBlocked(row * columns + c) && !terrain.isBlocked(r * columns + column);
+    }
+
+    private void touch(int cell) {
+        if (touchedFlags[cell]) return;
+        touchedFlags[cell] = true;
+        touched.add(cell);
+    }
+
+    // Binary min-heap of (cell, key) pairs.
+    private void push(int cell, float key) {
+        if (heapSize == heapCells.length) {
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapKeys[parent] <= key) break;
+            heapCells[i] = heapCells[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        int top = heapCells[0];
+        int cell = heapCells[--heapSize];
+        float key = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (heapKeys[child] >= key) break;
+            heapCells[i] = heapCells[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+        return top;
+    }
+}
@@ -0,0 +1,240 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.Array;
+import java.util.Arrays;
+
+/**
+ * Per-phase frame timings, kept over a rolling window of frames.
+ * <p>
+ * Code brackets each phase with {@link #begin}/{@link #end}; a phase entered several times in a
+ * frame (a simulation phase run once per fixed step, say) adds up. {@link #endFrame} files the
+ * frame into the window and samples the {@link MemoryProbe}. Nothing here allocates after
+ * construction, so turning the profiler on doesn't change the garbage it is measuring.
+ */
+public class FrameProfiler {
+
+    /**
+     * Timed sections of a frame. Simulation phases run inside {@link #SIMULATION}.
+     */
+    public enum Phase {
+        SIMULATION("Simulation", false),
+        TARGETING("Targeting", true),
+        MOVEMENT("Virus movement", true),
+        VIRUS_ATTACKS("Virus attacks", true),
+        PROJECTILES("Projectiles", true),
+        COLLISIONS("Collisions", true),
+        WAVES("Wave spawns", true),
+        INDICATORS("Indicators", false),
+        WORLD_DRAW("World draw", false),
+        UI_ACT("UI act", false),
+        UI_DRAW("UI draw", false),
+        FRAME("Frame", false);
+
+        private final String label;
+        private final boolean nested;
+
+        Phase(String label, boolean nested) {
+            this.label = label;
+            this.nested = nested;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * True for phases measured inside another phase.
+         */
+        public boolean isNested() {
+            return nested;
+        }
+    }
+
+    /**
+     * Heap figures for the allocation-rate and GC readouts. Platforms with better numbers than
+     * the portable default can supply their own.
+     */
+    public interface MemoryProbe {
+        /** Bytes allocated so far, as a monotonically increasing counter. */
+        long allocatedBytes();
+
+        /** Collections so far. */
+        long gcCount();
+    }
+
+    /**
+     * Receives every finished frame, for example to forward it to a recording.
+     */
+    public interface Sink {
+        void frame(FrameProfiler profiler);
+    }
+
+    /**
+     * Portable probe based on used heap. Growth between samples counts as allocation and a drop
+     * counts as a collection, so it undercounts both while a collection overlaps a frame.
+     */
+    public static class HeapProbe implements MemoryProbe {
+        private final Runtime runtime = Runtime.getRuntime();
+        private long lastUsed = used();
+        private long allocated;
+        private long collections;
+
+        private long used() {
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+
+        private void sample() {
+            long used = used();
+            if (used >= lastUsed) allocated += used - lastUsed;
+            else collections++;
+            lastUsed = used;
+        }
+
+        @Override
+        public long allocatedBytes() {
+            sample();
+            return allocated;
+        }
+
+        @Override
+        public long gcCount() {
+            return collections;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final int window;
+    private final long[] started = new long[PHASES.length];
+    private final long[] current = new long[PHASES.length];
+    // Ring buffers of per-frame totals, one row per phase, plus allocations per frame.
+    private final long[][] history;
+    private final long[] allocationHistory;
+    private final long[] scratch;
+    private int frames;
+    private int head;
+
+    private MemoryProbe probe;
+    private long lastAllocated;
+    private long lastGcCount;
+    private long frameAllocated;
+    private long gcCount;
+    private final Array<Sink> sinks = new Array<>(false, 2, Sink.class);
+
+    public FrameProfiler(int window) {
+        this(window, new HeapProbe());
+    }
+
+    public FrameProfiler(int window, MemoryProbe probe) {
+        this.window = window;
+        history = new long[PHASES.length][window];
+        allocationHistory = new long[window];
+        scratch = new long[window];
+        setProbe(probe);
+    }
+
+    public void setProbe(MemoryProbe probe) {
+        this.probe = probe;
+        lastAllocated = probe.allocatedBytes();
+        lastGcCount = probe.gcCount();
+    }
+
+    public void addSink(Sink sink) {
+        sinks.add(sink);
+    }
+
+    public void removeSink(Sink sink) {
+        sinks.removeValue(sink, true);
+    }
+
+    public void begin(Phase phase) {
+        started[phase.ordinal()] = System.nanoTime();
+    }
+
+    public void end(Phase phase) {
+        int i = phase.ordinal();
+        current[i] += System.nanoTime() - started[i];
+    }
+
+    /**
+     * Close the frame: store every phase's total in the window and reset for the next frame.
+     */
+    public void endFrame() {
+        for (int i = 0; i < PHASES.length; i++) {
+            history[i][head] = current[i];
+            current[i] = 0;
+        }
+        long allocated = probe.allocatedBytes();
+        long collections = probe.gcCount();
+        frameAllocated = allocated - lastAllocated;
+        allocationHistory[head] = frameAllocated;
+        gcCount += collections - lastGcCount;
+        lastAllocated = allocated;
+        lastGcCount = collections;
+        head = (head + 1) % window;
+        if (frames < window) frames++;
+        if (sinks.size > 0) {
+            for (int i = 0; i < sinks.size; i++) sinks.get(i).frame(this);
+            // Whatever the sinks allocate is theirs, not the next frame's.
+            lastAllocated = probe.allocatedBytes();
+        }
+    }
+
+    /**
+     * Forget the window, e.g. after the profiler was switched off for a while.
+     */
+    public void reset() {
+        frames = 0;
+        head = 0;
+        Arrays.fill(current, 0);
+        lastAllocated = probe.allocatedBytes();
+        lastGcCount = probe.gcCount();
+    }
+
+    /**
+     * Time spent in the phase during the last finished frame, in nanoseconds.
+     */
+    public long last(Phase phase) {
+        return frames == 0 ? 0 : history[phase.ordinal()][(head + window - 1) % window];
+    }
+
+    /**
+     * The given percentile (0-1) of the phase's per-frame time over the window, in nanoseconds.
+     */
+    public long percentile(Phase phase, float fraction) {
+        return percentile(history[phase.ordinal()], fraction);
+    }
+
+    /**
+     * The given percentile of bytes allocated per frame over the window.
+     */
+    public long allocationPercentile(float fraction) {
+        return percentile(allocationHistory, fraction);
+    }
+
+    private long percentile(long[] samples, float fraction) {
+        if (frames == 0) return 0;
+        System.arraycopy(samples, 0, scratch, 0, frames);
+        Arrays.sort(scratch, 0, frames);
+        int rank = (int)Math.ceil(fraction * frames) - 1;
+        return scratch[Math.min(Math.max(rank, 0), frames - 1)];
+    }
+
+    /**
+     * Bytes allocated during the last finished frame.
+     */
+    public long getFrameAllocated() {
+        return frameAllocated;
+    }
+
+    /**
+     * Collections seen since the profiler was created.
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+}
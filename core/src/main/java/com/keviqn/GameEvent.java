@@ -0,0 +1,65 @@
+package com.keviqn;
+
+/**
+ * A simulation event. The bus reuses instances, so an event is only valid for the duration of
+ * the {@link EventBus.Listener#onEvent} call that receives it; copy out anything you need.
+ */
+public final class GameEvent {
+    public enum Type {
+        // virus = the virus, amount = damage dealt.
+        PROJECTILE_HIT,
+        // virus = the virus, value = total kills so far.
+        VIRUS_KILLED,
+        // amount = storage damage taken this tick, value = storage used (rounded down).
+        TOWER_DAMAGED,
+        // value = new GP balance.
+        GP_CHANGED,
+        // value = wave number.
+        WAVE_SPAWNED,
+        // value = wave number.
+        WAVE_CLEARED,
+        // upgrade = what was bought, value = its new level.
+        UPGRADE_PURCHASED,
+        // value = map cell of the relay tower.
+        TOWER_PLACED,
+        // value = map cell of the relay tower whose storage filled up.
+        TOWER_DESTROYED,
+        // value = waves cleared while away. The world's getOfflineProgress() has the rest.
+        OFFLINE_PROGRESS,
+        GAME_OVER
+    }
+
+    Type type;
+    Virus virus;
+    float amount;
+    int value;
+    Upgrade upgrade;
+
+    void set(Type type, Virus virus, float amount, int value, Upgrade upgrade) {
+        this.type = type;
+        this.virus = virus;
+        this.amount = amount;
+        this.value = value;
+        this.upgrade = upgrade;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Virus getVirus() {
+        return virus;
+    }
+
+    public float getAmount() {
+        return amount;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public Upgrade getUpgrade() {
+        return upgrade;
+    }
+}
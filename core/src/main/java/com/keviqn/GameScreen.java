@@ -1,16 +1,22 @@
 package com.keviqn;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.scenes.scene2d.ui.Dialog;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.Touchable;
+import com.badlogic.gdx.scenes.scene2d.ui.Dialog;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
@@ -18,12 +24,25 @@ import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public class GameScreen implements Screen {
 
+    static final String REPLAY_FILE = "replays/last.replay";
+    private static final int BULK_COUNT = 10;
+    static final String SAVE_FILE = "saves/autosave.sav";
+    private static final float AUTOSAVE_INTERVAL = 30f; // seconds of play
+    private static final FrameProfiler.Phase[] PROFILER_PHASES = FrameProfiler.Phase.values();
+    private static final int PROFILER_WINDOW = 240;      // frames
+    private static final float PROFILER_REFRESH = 0.25f; // seconds between overlay updates
+    private static final Color WALL_COLOR = new Color(0.25f, 0.25f, 0.3f, 1f);
+    private static final Color ROUGH_COLOR = new Color(0.45f, 0.35f, 0.2f, 1f);
+
     private Main game;
     private Stage uiStage;
     private SpriteBatch batch;
@@ -31,63 +50,137 @@ public class GameScreen implements Screen {
 
     // UI Labels and upgrade table.
     private Label waveLabel, gpLabel, towerStorageLabel, enemiesRemainingLabel;
-    private Texture gpTexture;
+    private Assets.Handle<Texture> gpTexture;
     private Table tabContent;
-
-    // Game objects.
+    private Table upgradeTab, targetingTab, diagnosticsTab;
+    private TextButton[] levelButtons, tenButtons, maxButtons;
+    private Label[] priceLabels;
+    private TextButton targetingButton;
+    private TextButton guidanceButton;
+    private TextButton placeButton;
+    // While on, a tap on the world places a relay tower there.
+    private boolean placing;
+    private final Vector3 touchPoint = new Vector3();
+    private InputMultiplexer input;
+
+    // Simulation.
+    private GameWorld world;
     private Tower tower;
-    private ArrayList<Virus> viruses;
-    private ArrayList<Projectile> projectiles;
-    private ArrayList<DamageIndicator> damageIndicators;
+    private Replay replay;
+    // True while watching a replay: the world plays the recorded actions and takes no input.
+    private final boolean watching;
+    private DamageIndicators damageIndicators;
+    private RunTracker runTracker;
+
+    // World sprites: one atlas borrowed from the shared asset cache, regions looked up once.
+    private Assets.Handle<TextureAtlas> worldAtlas;
+    private TextureRegion towerRegion, virusRegion, projectileRegion, terrainRegion;
+
+    // Render stats readout (toggled from Tab 3).
+    private GLProfiler glProfiler;
+    private Label renderStatsLabel;
+    private boolean showRenderStats = false;
+
+    // Frame profiler overlay (toggled from Tab 3). Null while off, so nothing is timed.
+    private FrameProfiler frameProfiler;
+    private Label profilerLabel;
+    private final StringBuilder profilerText = new StringBuilder(1024);
+    private float profilerRefreshTimer;
+    private int worldRenderCalls, uiRenderCalls;
 
     // World camera.
     private OrthographicCamera worldCamera;
-    private final float WORLD_WIDTH = 2400;
-    private final float WORLD_HEIGHT = 1080;
 
-    // Wave logic.
-    private int currentWave = 1;
-    private float waveCooldown = 2f;
-    private float waveTimer = 0f;
+    // Scratch text for HUD label updates.
+    private final StringBuilder hudText = new StringBuilder(32);
+    // Set when GP changes; what depends on it is refreshed once per frame, however many times
+    // it changed.
+    private boolean gpDirty;
 
-    // Currency and stats.
-    private int gpEarned = 0;
-    private int enemiesKilled = 0;
-    private float currencyTimer = 0f;
+    // Persistence.
+    private Autosaver autosaver;
+    private float autosaveTimer = 0;
 
     // Game state.
     private boolean gamePaused = false;
-    private boolean gameOver = false;
+    // Wall-clock time the app went into the background, or 0 while it is in front.
+    private long pausedAt;
 
     public GameScreen(Main game) {
-        this.game = game;
-
-        // Set up world camera.
-        worldCamera = new OrthographicCamera();
-        worldCamera.setToOrtho(false, WORLD_WIDTH, WORLD_HEIGHT);
+        this(game, null);
+    }
 
-        // Set up batch.
-        batch = new SpriteBatch();
+    /**
+     * Continue a saved game, or start a new one if save is null.
+     */
+    public GameScreen(Main game, SaveGame save) {
+        this(game, save, null);
+    }
 
-        // Load skin.
-        skin = new Skin(Gdx.files.internal("uiskin.json"));
+    /**
+     * Play back a finished game. Nothing is saved or counted towards the stats.
+     */
+    public static GameScreen watch(Main game, Replay replay) {
+        return new GameScreen(game, null, replay);
+    }
 
-        // Create the tower at the center.
-        // Tower is rendered at 400x100.
-        float towerWidth = 400;
-        float towerHeight = 100;
-        float towerX = WORLD_WIDTH / 2f - towerWidth / 2f;
-        float towerY = WORLD_HEIGHT / 2f - towerHeight / 2f;
-        tower = new Tower(towerX, towerY, towerWidth, towerHeight);
+    private GameScreen(Main game, SaveGame save, Replay playback) {
+        this.game = game;
+        watching = playback != null;
 
-        // Initialize lists.
-        viruses = new ArrayList<>();
-        projectiles = new ArrayList<>();
-        damageIndicators = new ArrayList<>();
+        // Set up world camera.
+        worldCamera = new OrthographicCamera();
+        worldCamera.setToOrtho(false, GameWorld.WORLD_WIDTH, GameWorld.WORLD_HEIGHT);
+
+        // Set up batch. Sized to the largest index buffer so a big wave doesn't flush mid-pass.
+        batch = new SpriteBatch(8191);
+        glProfiler = new GLProfiler(Gdx.graphics);
+
+        // Borrow the shared skin and the world atlas. Every world sprite shares its one texture,
+        // so the batch never switches. Both were preloaded, so this doesn't touch the disk.
+        Assets assets = game.getAssets();
+        skin = assets.getSkin();
+        worldAtlas = assets.acquireAtlas(Assets.WORLD_ATLAS);
+        towerRegion = findRegion(Assets.TOWER);
+        virusRegion = findRegion(Assets.VIRUS);
+        projectileRegion = findRegion(Assets.PROJECTILE);
+        terrainRegion = findRegion(Assets.TERRAIN);
+
+        // Create the simulation (spawns the first wave), or pick up where the save left off.
+        if (watching) {
+            world = new GameWorld(playback.getSeed(), playback.getTerrain());
+            world.setPlayback(playback, 0);
+            replay = playback;
+        } else if (save != null) {
+            world = save.getWorld();
+            replay = save.getReplay();
+        } else {
+            TerrainMap map = TerrainMap.parse(Gdx.files.internal(Assets.DEFAULT_MAP).readString());
+            world = new GameWorld(MathUtils.random.nextLong(), map);
+            replay = new Replay(world.getSeed(), map);
+        }
+        if (!watching) world.setRecording(replay);
+        // Waves big enough to pass the updater's size threshold spread over every core.
+        if (Runtime.getRuntime().availableProcessors() > 1) world.setParallelUpdater(new ParallelUpdater());
+        autosaver = new Autosaver(Gdx.files.local(SAVE_FILE));
+        tower = world.getTower();
+        damageIndicators = new DamageIndicators();
+        if (!watching) runTracker = new RunTracker(world, game.getStats());
 
         // Build UI overlays.
         uiStage = new Stage(new ScreenViewport());
-        Gdx.input.setInputProcessor(uiStage);
+        // The UI gets first pick of every touch; whatever it doesn't use may place a tower.
+        input = new InputMultiplexer(uiStage, new InputAdapter() {
+            @Override
+            public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+                if (!placing) return false;
+                worldCamera.unproject(touchPoint.set(screenX, screenY, 0));
+                TerrainMap terrain = world.getFlowField().getTerrain();
+                world.placeTower((int)(touchPoint.x / terrain.getCellWidth()), (int)(touchPoint.y / terrain.getCellHeight()));
+                return true;
+            }
+        });
+        Gdx.input.setInputProcessor(input);
 
         // -- Top-left info overlay.
         Table infoTable = new Table();
@@ -95,21 +188,25 @@ public class GameScreen implements Screen {
         infoTable.setFillParent(true);
         infoTable.pad(20);
 
-        waveLabel = new Label("Wave: " + currentWave, skin);
+        waveLabel = new Label("Wave: " + world.getCurrentWave(), skin);
         waveLabel.setFontScale(5);
 
         towerStorageLabel = new Label("Storage: " + (int)tower.getStorageTotal() + " / " + (int)tower.getStorageAvailable(), skin);
         towerStorageLabel.setFontScale(5);
 
-        gpTexture = new Texture(Gdx.files.internal("gp1.png"));
-        Image gpImage = new Image(gpTexture);
+        gpTexture = assets.acquireTexture(Assets.GP);
+        Image gpImage = new Image(gpTexture.get());
         gpImage.setSize(65, 65);
-        gpLabel = new Label(String.valueOf(gpEarned), skin);
+        gpLabel = new Label(String.valueOf(world.getGpEarned()), skin);
         gpLabel.setFontScale(5);
 
         enemiesRemainingLabel = new Label("Viruses Remaining: 0", skin);
         enemiesRemainingLabel.setFontScale(5);
 
+        renderStatsLabel = new Label("", skin);
+        renderStatsLabel.setFontScale(3);
+        renderStatsLabel.setVisible(false);
+
         infoTable.add(waveLabel).expandX().left();
         infoTable.row().padTop(10);
         infoTable.add(towerStorageLabel).expandX().left();
@@ -120,6 +217,8 @@ public class GameScreen implements Screen {
         infoTable.add(gpTable).expandX().left();
         infoTable.row().padTop(20);
         infoTable.add(enemiesRemainingLabel).expandX().left();
+        infoTable.row().padTop(20);
+        infoTable.add(renderStatsLabel).expandX().left();
         uiStage.addActor(infoTable);
 
         // -- Top-right play/pause button.
@@ -140,9 +239,39 @@ public class GameScreen implements Screen {
                     pauseButton.getLabel().setColor(Color.GREEN);
             }
         });
+        final TextButton speedButton = new TextButton(world.getSpeed().getLabel(), skin);
+        speedButton.getLabel().setFontScale(4);
+        speedButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                world.setSpeed(world.getSpeed().next());
+                speedButton.setText(world.getSpeed().getLabel());
+            }
+        });
+        final TextButton skipButton = new TextButton(">>", skin);
+        skipButton.getLabel().setFontScale(4);
+        skipButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                world.skipToNextWave();
+            }
+        });
+        topRightTable.add(speedButton).size(160,80).padRight(10);
+        topRightTable.add(skipButton).size(120,80).padRight(10);
         topRightTable.add(pauseButton).size(80,80);
         uiStage.addActor(topRightTable);
 
+        // -- Profiler overlay, below the top-right buttons.
+        Table profilerTable = new Table();
+        profilerTable.setFillParent(true);
+        profilerTable.top().right();
+        profilerTable.pad(120, 20, 20, 20);
+        profilerLabel = new Label("", skin);
+        profilerLabel.setFontScale(2.5f);
+        profilerLabel.setVisible(false);
+        profilerTable.add(profilerLabel).right();
+        uiStage.addActor(profilerTable);
+
         // -- Bottom UI overlay for tabs.
         Table bottomTable = new Table();
         bottomTable.setFillParent(true);
@@ -162,24 +291,30 @@ public class GameScreen implements Screen {
         tab3Button.getLabel().setFontScale(5);
 
         tabContent = new Table();
-        populateTabContent("Tab 1");
+        buildTabs();
+        showTab(upgradeTab);
+        if (watching) {
+            // The replay makes the moves; the controls only show them.
+            upgradeTab.setTouchable(Touchable.disabled);
+            targetingTab.setTouchable(Touchable.disabled);
+        }
 
         tab1Button.addListener(new ChangeListener() {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
-                populateTabContent("Tab 1");
+                showTab(upgradeTab);
             }
         });
         tab2Button.addListener(new ChangeListener() {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
-                populateTabContent("Tab 2");
+                showTab(targetingTab);
             }
         });
         tab3Button.addListener(new ChangeListener() {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
-                populateTabContent("Tab 3");
+                showTab(diagnosticsTab);
             }
         });
 
@@ -191,306 +326,512 @@ public class GameScreen implements Screen {
             .width(uiStage.getViewport().getScreenWidth())
             .height(tabContentHeight).padTop(5);
 
-        // Start with 0 GP.
-        gpEarned = 0;
-        gpLabel.setText(String.valueOf(gpEarned));
+        // Hook simulation events up to the presentation layer. HUD labels only change
+        // when the event behind them fires.
+        EventBus events = world.getEvents();
+        events.subscribe(GameEvent.Type.PROJECTILE_HIT, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                damageIndicators.hit(event.getVirus(), event.getAmount());
+            }
+        });
+        events.subscribe(GameEvent.Type.WAVE_SPAWNED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                updateWaveLabel();
+                updateEnemiesRemaining();
+            }
+        });
+        events.subscribe(GameEvent.Type.VIRUS_KILLED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                updateEnemiesRemaining();
+            }
+        });
+        events.subscribe(GameEvent.Type.GP_CHANGED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                gpDirty = true;
+            }
+        });
+        events.subscribe(GameEvent.Type.TOWER_DAMAGED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                updateStorageLabel();
+            }
+        });
+        events.subscribe(GameEvent.Type.TOWER_DESTROYED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                // Relays get cheaper as they fall.
+                updatePlaceButton();
+            }
+        });
+        events.subscribe(GameEvent.Type.UPGRADE_PURCHASED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                updateUpgradeRow(event.getUpgrade());
+                if (event.getUpgrade() == Upgrade.STORAGE_SPACE) updateStorageLabel();
+            }
+        });
+        events.subscribe(GameEvent.Type.OFFLINE_PROGRESS, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                updateWaveLabel();
+                updateEnemiesRemaining();
+            }
+        });
+        events.subscribe(GameEvent.Type.GAME_OVER, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                if (watching) {
+                    showReplayOverDialog();
+                    return;
+                }
+                saveReplay();
+                // A finished game can't be continued.
+                autosaver.delete();
+                showGameOverDialog();
+            }
+        });
+        updateEnemiesRemaining();
 
-        // Initialize currency timer.
-        currencyTimer = 0;
+        // A continued game catches up on the time since it was saved.
+        if (save != null) catchUp(save.getSavedAt());
+    }
 
-        // Initialize upgrade values in the tower (they start at level 1 and price 1).
-        // (They are already initialized in Tower.)
+    // HUD label updates. They reuse one builder so a changing counter doesn't allocate strings.
+    private void updateWaveLabel() {
+        hudText.setLength(0);
+        hudText.append("Wave: ").append(world.getCurrentWave());
+        waveLabel.setText(hudText);
+    }
 
-        // Spawn first wave.
-        spawnWave();
+    private void updateGpLabel() {
+        hudText.setLength(0);
+        hudText.append(world.getGpEarned());
+        gpLabel.setText(hudText);
     }
 
-    // Spawn a new wave of viruses.
-    private void spawnWave() {
-        viruses.clear();
-        int enemyCount = currentWave * 10;
-        for (int i = 0; i < enemyCount; i++) {
-            float spawnX = 0;
-            float spawnY = MathUtils.random(0, WORLD_HEIGHT - 60); // virus size assumed 60
-            Virus virus = new Virus(spawnX, spawnY);
-            // Effective speed = currentWave + 100.
-            virus.speed = currentWave + 100;
-            viruses.add(virus);
-        }
-        if (waveLabel != null)
-            waveLabel.setText("Wave: " + currentWave);
+    private void updateStorageLabel() {
+        hudText.setLength(0);
+        hudText.append("Storage: ").append((int)tower.getStorageTotal()).append(" / ").append((int)tower.getStorageAvailable());
+        towerStorageLabel.setText(hudText);
     }
 
-    // Update the viruses remaining counter.
     private void updateEnemiesRemaining() {
-        int count = 0;
-        for (Virus virus : viruses) {
-            if (virus.isAlive()) count++;
-        }
-        enemiesRemainingLabel.setText("Viruses Remaining: " + count);
+        hudText.setLength(0);
+        hudText.append("Viruses Remaining: ").append(world.getEnemiesRemaining());
+        enemiesRemainingLabel.setText(hudText);
     }
 
-    // Populate the bottom tab content.
-    // For Tab 1, show upgrade options.
-    private void populateTabContent(String tabName) {
-        tabContent.clear();
-        if (tabName.equals("Tab 1")) {
-            Table upgradeTable = new Table();
-            // For each upgrade, create a row.
-            // Software Version Upgrade.
-            upgradeTable.add(new Label("Software Version", skin)).padRight(10);
-            final TextButton svButton = new TextButton(String.valueOf(tower.getSoftwareVersionLevel()), skin);
-            svButton.getLabel().setFontScale(4);
-            upgradeTable.add(svButton).padRight(10);
-            upgradeTable.row();
-            upgradeTable.add(new Label("Price: " + tower.getSoftwareVersionPrice(), skin)).colspan(2).padBottom(10);
-            upgradeTable.row();
-            // Processor Speed Upgrade.
-            upgradeTable.add(new Label("Processor Speed", skin)).padRight(10);
-            final TextButton psButton = new TextButton(String.valueOf(tower.getProcessorSpeedLevel()), skin);
-            psButton.getLabel().setFontScale(4);
-            upgradeTable.add(psButton).padRight(10);
-            upgradeTable.row();
-            upgradeTable.add(new Label("Price: " + tower.getProcessorSpeedPrice(), skin)).colspan(2).padBottom(10);
-            upgradeTable.row();
-            // Storage Space Upgrade.
-            upgradeTable.add(new Label("Storage Space", skin)).padRight(10);
-            final TextButton ssButton = new TextButton(String.valueOf(tower.getStorageSpaceLevel()), skin);
-            ssButton.getLabel().setFontScale(4);
-            upgradeTable.add(ssButton).padRight(10);
-            upgradeTable.row();
-            upgradeTable.add(new Label("Price: " + tower.getStorageSpacePrice(), skin)).colspan(2).padBottom(10);
-            upgradeTable.row();
-            // Internet Speed Upgrade.
-            upgradeTable.add(new Label("Internet Speed", skin)).padRight(10);
-            final TextButton isButton = new TextButton(String.valueOf(tower.getInternetSpeedLevel()), skin);
-            isButton.getLabel().setFontScale(4);
-            upgradeTable.add(isButton).padRight(10);
-            upgradeTable.row();
-            upgradeTable.add(new Label("Price: " + tower.getInternetSpeedPrice(), skin)).colspan(2).padBottom(10);
-            upgradeTable.row();
-            // Graphics Card Upgrade.
-            upgradeTable.add(new Label("Graphics Card", skin)).padRight(10);
-            final TextButton gcButton = new TextButton(String.valueOf(tower.getGraphicsCardLevel()), skin);
-            gcButton.getLabel().setFontScale(4);
-            upgradeTable.add(gcButton).padRight(10);
-            upgradeTable.row();
-            upgradeTable.add(new Label("Price: " + tower.getGraphicsCardPrice(), skin)).colspan(2).padBottom(10);
-            upgradeTable.row();
-
-            // Add listeners for each upgrade button.
-            svButton.addListener(new ChangeListener() {
-                @Override
-                public void changed(ChangeEvent event, Actor actor) {
-                    if(gpEarned >= tower.getSoftwareVersionPrice()){
-                        gpEarned -= tower.getSoftwareVersionPrice();
-                        tower.upgradeSoftwareVersion();
-                        populateTabContent("Tab 1");
-                        gpLabel.setText(String.valueOf(gpEarned));
-                    }
-                }
-            });
-            psButton.addListener(new ChangeListener() {
+    // Build the bottom tab tables once. Afterwards they are only updated in place, from the
+    // simulation events that change what they show.
+    private void buildTabs() {
+        // Tab 1: one row per upgrade. The level button buys one level, then x10 and max.
+        Upgrade[] upgrades = Upgrade.values();
+        levelButtons = new TextButton[upgrades.length];
+        tenButtons = new TextButton[upgrades.length];
+        maxButtons = new TextButton[upgrades.length];
+        priceLabels = new Label[upgrades.length];
+        upgradeTab = new Table();
+        for (final Upgrade upgrade : upgrades) {
+            int i = upgrade.ordinal();
+            levelButtons[i] = new TextButton("", skin);
+            levelButtons[i].getLabel().setFontScale(4);
+            levelButtons[i].addListener(new ChangeListener() {
                 @Override
                 public void changed(ChangeEvent event, Actor actor) {
-                    if(gpEarned >= tower.getProcessorSpeedPrice()){
-                        gpEarned -= tower.getProcessorSpeedPrice();
-                        tower.upgradeProcessorSpeed();
-                        populateTabContent("Tab 1");
-                        gpLabel.setText(String.valueOf(gpEarned));
-                    }
+                    world.purchase(upgrade);
                 }
             });
-            ssButton.addListener(new ChangeListener() {
+            tenButtons[i] = new TextButton("x10", skin);
+            tenButtons[i].getLabel().setFontScale(3);
+            tenButtons[i].addListener(new ChangeListener() {
                 @Override
                 public void changed(ChangeEvent event, Actor actor) {
-                    if(gpEarned >= tower.getStorageSpacePrice()){
-                        gpEarned -= tower.getStorageSpacePrice();
-                        tower.upgradeStorageSpace();
-                        populateTabContent("Tab 1");
-                        gpLabel.setText(String.valueOf(gpEarned));
-                    }
+                    world.purchase(upgrade, BULK_COUNT);
                 }
             });
-            isButton.addListener(new ChangeListener() {
+            maxButtons[i] = new TextButton("", skin);
+            maxButtons[i].getLabel().setFontScale(3);
+            maxButtons[i].addListener(new ChangeListener() {
                 @Override
                 public void changed(ChangeEvent event, Actor actor) {
-                    if(gpEarned >= tower.getInternetSpeedPrice()){
-                        gpEarned -= tower.getInternetSpeedPrice();
-                        tower.upgradeInternetSpeed();
-                        populateTabContent("Tab 1");
-                        gpLabel.setText(String.valueOf(gpEarned));
-                    }
-                }
-            });
-            gcButton.addListener(new ChangeListener() {
-                @Override
-                public void changed(ChangeEvent event, Actor actor) {
-                    if(gpEarned >= tower.getGraphicsCardPrice()){
-                        gpEarned -= tower.getGraphicsCardPrice();
-                        tower.upgradeGraphicsCard();
-                        populateTabContent("Tab 1");
-                        gpLabel.setText(String.valueOf(gpEarned));
-                    }
+                    world.purchaseMax(upgrade);
                 }
             });
+            priceLabels[i] = new Label("", skin);
+
+            upgradeTab.add(new Label(upgrade.getLabel(), skin)).padRight(10);
+            upgradeTab.add(levelButtons[i]).padRight(10);
+            upgradeTab.add(tenButtons[i]).padRight(10);
+            upgradeTab.add(maxButtons[i]).padRight(10);
+            upgradeTab.row();
+            upgradeTab.add(priceLabels[i]).colspan(4).padBottom(10);
+            upgradeTab.row();
+            updateUpgradeRow(upgrade);
+        }
+        updateBulkButtons();
+
+        // Tab 2: targeting strategy and projectile guidance selectors.
+        targetingTab = new Table();
+        Label targetingLabel = new Label("Targeting", skin);
+        targetingLabel.setFontScale(4);
+        targetingTab.add(targetingLabel).padRight(20);
+        targetingButton = new TextButton(currentTargeting().getLabel(), skin);
+        targetingButton.getLabel().setFontScale(4);
+        targetingButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                world.setTargeting(currentTargeting().next());
+                targetingButton.setText(currentTargeting().getLabel());
+            }
+        });
+        targetingTab.add(targetingButton);
+        targetingTab.row().padTop(20);
+        Label guidanceLabel = new Label("Guidance", skin);
+        guidanceLabel.setFontScale(4);
+        targetingTab.add(guidanceLabel).padRight(20);
+        guidanceButton = new TextButton(tower.getGuidance().getLabel(), skin);
+        guidanceButton.getLabel().setFontScale(4);
+        guidanceButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                world.setGuidance(tower.getGuidance().next());
+                guidanceButton.setText(tower.getGuidance().getLabel());
+            }
+        });
+        targetingTab.add(guidanceButton);
+        targetingTab.row().padTop(20);
+        Label towersLabel = new Label("Towers", skin);
+        towersLabel.setFontScale(4);
+        targetingTab.add(towersLabel).padRight(20);
+        placeButton = new TextButton("", skin);
+        placeButton.getLabel().setFontScale(4);
+        placeButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                placing = !placing;
+                updatePlaceButton();
+            }
+        });
+        targetingTab.add(placeButton);
+        updatePlaceButton();
+
+        // Tab 3: diagnostics.
+        diagnosticsTab = new Table();
+        final TextButton statsButton = new TextButton("Render Stats: Off", skin);
+        statsButton.getLabel().setFontScale(4);
+        statsButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                setRenderStats(!showRenderStats);
+                statsButton.setText(showRenderStats ? "Render Stats: On" : "Render Stats: Off");
+            }
+        });
+        diagnosticsTab.add(statsButton).padRight(20);
+        final TextButton profilerButton = new TextButton("Profiler: Off", skin);
+        profilerButton.getLabel().setFontScale(4);
+        profilerButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                setFrameProfiler(frameProfiler == null);
+                profilerButton.setText(frameProfiler != null ? "Profiler: On" : "Profiler: Off");
+            }
+        });
+        diagnosticsTab.add(profilerButton);
+    }
 
-            tabContent.add(upgradeTable).expand().left();
-        } else {
-            Label contentLabel = new Label("Content for " + tabName, skin);
-            contentLabel.setFontScale(5);
-            tabContent.add(contentLabel).expand().center();
+    private void showTab(Table tab) {
+        tabContent.clear();
+        tabContent.add(tab).expand().left();
+    }
+
+    private void updatePlaceButton() {
+        hudText.setLength(0);
+        hudText.append(placing ? "Tap to place (" : "Place (").append(world.getRelayPrice()).append(" GP)");
+        placeButton.getLabel().setText(hudText);
+    }
+
+    private Targeting currentTargeting() {
+        return tower.getTargeting() instanceof Targeting ? (Targeting)tower.getTargeting() : Targeting.FIRST_ARRIVED;
+    }
+
+    private void updateUpgradeRow(Upgrade upgrade) {
+        int i = upgrade.ordinal();
+        int level = tower.getLevel(upgrade);
+        hudText.setLength(0);
+        hudText.append(level);
+        levelButtons[i].getLabel().setText(hudText);
+        hudText.setLength(0);
+        hudText.append("Price: ").append(tower.getPrice(upgrade))
+            .append("   x10: ").append(PriceTable.cost(level, BULK_COUNT));
+        priceLabels[i].setText(hudText);
+    }
+
+    // What the balance buys changes with every GP change, so refresh the bulk buttons then.
+    private void updateBulkButtons() {
+        for (Upgrade upgrade : Upgrade.values()) {
+            int i = upgrade.ordinal();
+            int affordable = world.getAffordableCount(upgrade, Replay.MAX_PURCHASE_COUNT);
+            tenButtons[i].setDisabled(affordable < BULK_COUNT);
+            maxButtons[i].setDisabled(affordable == 0);
+            hudText.setLength(0);
+            hudText.append("Max (").append(affordable).append(')');
+            maxButtons[i].getLabel().setText(hudText);
         }
     }
 
     @Override
     public void show() {
-        Gdx.input.setInputProcessor(uiStage);
+        Gdx.input.setInputProcessor(input);
     }
 
     @Override
     public void render(float delta) {
+        begin(FrameProfiler.Phase.FRAME);
         worldCamera.update();
         batch.setProjectionMatrix(worldCamera.combined);
 
         Gdx.gl.glClearColor(0,0,0,1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-        if(!gamePaused && !gameOver) {
-            float towerCenterX = tower.getCenterX();
-            float towerCenterY = tower.getCenterY();
+        if(!gamePaused && !world.isGameOver()) {
+            begin(FrameProfiler.Phase.SIMULATION);
+            world.update(delta);
+            end(FrameProfiler.Phase.SIMULATION);
+            if (runTracker != null) runTracker.sample();
+            // Stats recorded during the update are written off the render thread.
+            game.getStats().flush();
 
-            // Tower attacks: spawn a projectile if possible.
-            Projectile proj = tower.tryAttack(delta, viruses);
-            if(proj != null) {
-                projectiles.add(proj);
-            }
+            // Update damage indicators.
+            begin(FrameProfiler.Phase.INDICATORS);
+            damageIndicators.update(delta);
+            end(FrameProfiler.Phase.INDICATORS);
 
-            // Accumulate currency based on processor speed.
-            int gathered = tower.gatherCurrency(delta);
-            if(gathered > 0){
-                gpEarned += gathered;
-                gpLabel.setText(String.valueOf(gpEarned));
+            autosaveTimer += delta;
+            if (autosaveTimer >= AUTOSAVE_INTERVAL && !watching && !world.isGameOver() && autosaver.save(world, replay)) {
+                autosaveTimer = 0;
             }
+        }
 
-            // Update viruses.
-            for(Virus virus : viruses) {
-                virus.update(delta, towerCenterX, towerCenterY);
-                if(virus.isAlive() && virus.isCircling()) {
-                    virus.tryAttackTower(delta, tower);
-                }
-            }
+        // Draw the world in one pass, sorted by texture: every atlas sprite first, then the
+        // indicator text, so the batch flushes once per texture rather than once per entity.
+        if (showRenderStats) {
+            glProfiler.reset();
+            batch.maxSpritesInBatch = 0;
+        }
+        begin(FrameProfiler.Phase.WORLD_DRAW);
+        batch.begin();
+        renderTerrain();
+        Array<Tower> towers = world.getTowers();
+        for (int i = 0; i < towers.size; i++) {
+            towers.get(i).render(batch, towerRegion);
+        }
+        VirusStore viruses = world.getViruses();
+        for(int i = 0; i < viruses.size(); i++) {
+            viruses.get(i).render(batch, virusRegion);
+        }
+        EntityArray<Projectile> projectiles = world.getProjectiles();
+        for(int i = 0; i < projectiles.size(); i++) {
+            projectiles.get(i).render(batch, projectileRegion);
+        }
+        damageIndicators.render(batch);
+        batch.end();
+        end(FrameProfiler.Phase.WORLD_DRAW);
+        worldRenderCalls = batch.renderCalls;
 
-            // Update projectiles.
-            Iterator<Projectile> projIter = projectiles.iterator();
-            while(projIter.hasNext()){
-                Projectile p = projIter.next();
-                p.update(delta);
-                if(p.hasCollided()){
-                    Virus target = p.getTarget();
-                    target.decreaseHealth(p.getDamage());
-                    damageIndicators.add(new DamageIndicator(target.getCenterX(), target.getCenterY(), p.getDamage()));
-                    projIter.remove();
-                }
-            }
+        if (showRenderStats) updateRenderStats();
 
-            // Update damage indicators.
-            Iterator<DamageIndicator> diIter = damageIndicators.iterator();
-            while(diIter.hasNext()){
-                DamageIndicator di = diIter.next();
-                di.update(delta);
-                if(di.isExpired()){
-                    diIter.remove();
-                }
+        // Render UI.
+        if (gpDirty) {
+            gpDirty = false;
+            updateGpLabel();
+            updateBulkButtons();
+            updatePlaceButton();
+        }
+        begin(FrameProfiler.Phase.UI_ACT);
+        uiStage.act(delta);
+        end(FrameProfiler.Phase.UI_ACT);
+        begin(FrameProfiler.Phase.UI_DRAW);
+        uiStage.draw();
+        end(FrameProfiler.Phase.UI_DRAW);
+        uiRenderCalls = ((SpriteBatch)uiStage.getBatch()).renderCalls;
+
+        end(FrameProfiler.Phase.FRAME);
+        if (frameProfiler != null) {
+            frameProfiler.endFrame();
+            profilerRefreshTimer += delta;
+            if (profilerRefreshTimer >= PROFILER_REFRESH) {
+                profilerRefreshTimer = 0;
+                updateProfilerOverlay();
             }
+        }
+    }
 
-            // Process virus kills and currency drops.
-            for(Virus virus : viruses) {
-                if(!virus.isAlive() && !virus.processedKill) {
-                    virus.processedKill = true;
-                    enemiesKilled++;
-                    // 1 in 3 chance to drop 1-10 GP.
-                    int dropChance = MathUtils.random(1,3);
-                    if(dropChance == 1) {
-                        int gpDrop = MathUtils.random(1,10);
-                        gpEarned += gpDrop;
-                        gpLabel.setText(String.valueOf(gpEarned));
-                    }
-                }
-            }
+    // Walls and rough ground, darker the rougher. Open ground isn't drawn.
+    private void renderTerrain() {
+        TerrainMap terrain = world.getFlowField().getTerrain();
+        float w = terrain.getCellWidth(), h = terrain.getCellHeight();
+        for (int cell = 0; cell < terrain.getCellCount(); cell++) {
+            int cost = terrain.getCost(cell);
+            if (cost == TerrainMap.OPEN) continue;
+            if (cost == TerrainMap.BLOCKED) batch.setColor(WALL_COLOR);
+            else batch.setColor(ROUGH_COLOR.r, ROUGH_COLOR.g, ROUGH_COLOR.b, (float)cost / TerrainMap.MAX_COST);
+            batch.draw(terrainRegion, terrain.getCellX(cell), terrain.getCellY(cell), w, h);
+        }
+        batch.setColor(Color.WHITE);
+    }
 
-            // Update tower storage (damage from viruses).
-            towerStorageLabel.setText("Storage: " + (int)tower.getStorageTotal() + " / " + (int)tower.getStorageAvailable());
-            if(tower.getStorageTotal() >= tower.getStorageAvailable()){
-                gameOver = true;
-                showGameOverDialog();
-            }
+    private void begin(FrameProfiler.Phase phase) {
+        if (frameProfiler != null) frameProfiler.begin(phase);
+    }
 
-            // Wave spawn logic.
-            boolean allDead = true;
-            for(Virus virus : viruses) {
-                if(virus.isAlive()){
-                    allDead = false;
-                    break;
-                }
-            }
-            if(allDead && !viruses.isEmpty()){
-                waveTimer += delta;
-                if(waveTimer >= waveCooldown){
-                    currentWave++;
-                    spawnWave();
-                    waveTimer = 0f;
-                }
-            }
-        }
+    private void end(FrameProfiler.Phase phase) {
+        if (frameProfiler != null) frameProfiler.end(phase);
+    }
 
-        updateEnemiesRemaining();
+    private void setFrameProfiler(boolean enabled) {
+        if (enabled) {
+            frameProfiler = new FrameProfiler(PROFILER_WINDOW);
+            profilerRefreshTimer = PROFILER_REFRESH;
+        } else {
+            frameProfiler = null;
+        }
+        world.setProfiler(frameProfiler);
+        profilerLabel.setVisible(enabled);
+    }
 
-        // Draw game objects.
-        batch.begin();
-        tower.render(batch);
-        for(Virus virus : viruses) {
-            virus.render(batch);
+    // Rebuild the overlay text from the profiler window. Numbers are appended as integers (times
+    // in microseconds) so the readout itself doesn't show up in the allocation figures.
+    private void updateProfilerOverlay() {
+        StringBuilder text = profilerText;
+        text.setLength(0);
+        text.append("Phase (us): last p50 p95 p99\n");
+        for (FrameProfiler.Phase phase : PROFILER_PHASES) {
+            if (phase.isNested()) text.append("  ");
+            text.append(phase.getLabel()).append(':');
+            appendMicros(text, frameProfiler.last(phase));
+            appendMicros(text, frameProfiler.percentile(phase, 0.5f));
+            appendMicros(text, frameProfiler.percentile(phase, 0.95f));
+            appendMicros(text, frameProfiler.percentile(phase, 0.99f));
+            text.append('\n');
         }
-        for(Projectile p : projectiles) {
-            p.render(batch);
+        text.append("Viruses ").append(world.getViruses().size())
+            .append(" (alive ").append(world.getAliveVirusCount()).append(')')
+            .append("  Projectiles ").append(world.getProjectiles().size())
+            .append("  Indicators ").append(damageIndicators.size()).append('\n');
+        text.append("Alloc/frame ").append(frameProfiler.getFrameAllocated()).append(" B")
+            .append(" (p95 ").append(frameProfiler.allocationPercentile(0.95f)).append(" B)")
+            .append("  GCs ").append(frameProfiler.getGcCount()).append('\n');
+        text.append("Render calls: world ").append(worldRenderCalls).append("  UI ").append(uiRenderCalls);
+        profilerLabel.setText(text);
+    }
+
+    private static void appendMicros(StringBuilder text, long nanos) {
+        text.append(' ').append(nanos / 1000);
+    }
+
+    private TextureRegion findRegion(String name) {
+        TextureRegion region = worldAtlas.get().findRegion(name);
+        if (region == null) throw new GdxRuntimeException("Missing region in " + Assets.WORLD_ATLAS + ": " + name);
+        return region;
+    }
+
+    private void setRenderStats(boolean enabled) {
+        showRenderStats = enabled;
+        renderStatsLabel.setVisible(enabled);
+        if (enabled) {
+            glProfiler.reset();
+            glProfiler.enable();
+        } else {
+            glProfiler.disable();
         }
-        batch.end();
+    }
 
-        // Draw damage indicators.
-        batch.begin();
-        for(DamageIndicator di : damageIndicators) {
-            di.render(batch);
+    // World layer cost for this frame, read before the UI draws so the stage's own calls aren't counted.
+    private void updateRenderStats() {
+        hudText.setLength(0);
+        hudText.append("Draw calls: ").append(glProfiler.getDrawCalls())
+            .append("  Texture binds: ").append(glProfiler.getTextureBindings())
+            .append("  Max sprites/batch: ").append(batch.maxSpritesInBatch);
+        renderStatsLabel.setText(hudText);
+    }
+
+    // Keep the finished run's replay so it can be re-simulated later.
+    private void saveReplay() {
+        try (OutputStream out = Gdx.files.local(REPLAY_FILE).write(false)) {
+            replay.write(out);
+        } catch (IOException | GdxRuntimeException e) {
+            Gdx.app.error("GameScreen", "Could not save replay", e);
         }
-        batch.end();
+    }
 
-        // Render UI.
-        uiStage.act(delta);
-        uiStage.draw();
+    // Credit the time since the given wall-clock moment, unless the player had paused the game.
+    private void catchUp(long since) {
+        if (gamePaused || world.isGameOver()) return;
+        OfflineProgress progress = world.resumeAfter((TimeUtils.millis() - since) / 1000);
+        if (progress != null) showOfflineDialog(progress);
     }
 
+    private void showOfflineDialog(OfflineProgress progress) {
+        Dialog dialog = new Dialog("Welcome Back", skin);
+        long minutes = progress.getSeconds() / 60;
+        dialog.text("While you were away (" + minutes / 60 + "h " + minutes % 60 + "m):\nGP Earned: " + progress.getGp()
+            + "\nWaves Cleared: " + progress.getWavesCleared() + "\nEnemies Killed: " + progress.getKills()
+            + "\nStorage Lost: " + (int)progress.getStorageDamage());
+        dialog.button("OK");
+        dialog.show(uiStage);
+    }
 
     private void showGameOverDialog() {
-        com.badlogic.gdx.scenes.scene2d.ui.Dialog dialog = new com.badlogic.gdx.scenes.scene2d.ui.Dialog("Game Over", skin) {
+        Dialog dialog = new Dialog("Game Over", skin) {
             protected void result(Object obj) {
                 game.setScreen(new GameScreen(game));
+                // Release this screen's resources once the current frame has finished with them.
+                Gdx.app.postRunnable(GameScreen.this::dispose);
             }
         };
-        dialog.text("Game Over\nEnemies Killed: " + enemiesKilled + "\nGP Earned: " + gpEarned);
+        dialog.text("Game Over\nEnemies Killed: " + world.getEnemiesKilled() + "\nGP Earned: " + world.getTotalGpEarned()
+            + "\nBest Wave: " + game.getStats().getStats().getBestWave());
         dialog.button("Restart");
         dialog.show(uiStage);
     }
 
+    private void showReplayOverDialog() {
+        Dialog dialog = new Dialog("Replay Over", skin) {
+            protected void result(Object obj) {
+                game.setScreen(new MainMenuScreen(game));
+                Gdx.app.postRunnable(GameScreen.this::dispose);
+            }
+        };
+        dialog.text("Wave Reached: " + world.getCurrentWave() + "\nEnemies Killed: " + world.getEnemiesKilled()
+            + "\nGP Earned: " + world.getTotalGpEarned());
+        dialog.button("Menu");
+        dialog.show(uiStage);
+    }
+
     @Override
     public void resize(int width, int height) {
         uiStage.getViewport().update(width, height, true);
-        worldCamera.setToOrtho(false, WORLD_WIDTH, WORLD_HEIGHT);
+        worldCamera.setToOrtho(false, GameWorld.WORLD_WIDTH, GameWorld.WORLD_HEIGHT);
     }
 
     @Override
-    public void pause() { }
+    public void pause() {
+        // The app may be killed while in the background, so make sure the save is on disk.
+        if (!watching && !world.isGameOver()) autosaver.saveNow(world, replay);
+        game.getStats().flushNow();
+        autosaveTimer = 0;
+        pausedAt = TimeUtils.millis();
+    }
     @Override
-    public void resume() { }
+    public void resume() {
+        autosaveTimer = 0;
+        if (pausedAt > 0) catchUp(pausedAt);
+        pausedAt = 0;
+    }
     @Override
     public void hide() { }
 
@@ -498,7 +839,10 @@ public class GameScreen implements Screen {
     public void dispose() {
         uiStage.dispose();
         batch.dispose();
-        skin.dispose();
         gpTexture.dispose();
+        worldAtlas.dispose();
+        if (glProfiler.isEnabled()) glProfiler.disable();
+        damageIndicators.dispose();
+        autosaver.dispose();
     }
 }
@@ -0,0 +1,34 @@
+package com.keviqn;
+
+/**
+ * Simulation speed settings. Faster speeds run more fixed ticks per frame; they never
+ * stretch the tick length, so every speed plays out exactly like 1x.
+ */
+public enum GameSpeed {
+    X1("1x", 1),
+    X2("2x", 2),
+    X4("4x", 4),
+    // Step as fast as the CPU allows and only redraw a few times per second.
+    MAX("Max", 0);
+
+    private final String label;
+    private final int multiplier;
+
+    GameSpeed(String label, int multiplier) {
+        this.label = label;
+        this.multiplier = multiplier;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    public GameSpeed next() {
+        GameSpeed[] all = values();
+        return all[(ordinal() + 1) % all.length];
+    }
+}
@@ -0,0 +1,827 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Headless game simulation. Owns the towers, viruses, projectiles, wave state and GP,
+ * and advances them on a fixed timestep. Nothing in here touches GL, so the world can
+ * be stepped without a rendering context (tests, benchmarks, batch runs).
+ */
+public class GameWorld {
+
+    public static final float WORLD_WIDTH = 2400;
+    public static final float WORLD_HEIGHT = 1080;
+
+    // Fixed simulation step (60 ticks per second).
+    public static final float STEP = 1f / 60f;
+    // Largest frame delta fed into the accumulator, so a long stall can't spiral.
+    private static final float MAX_FRAME_TIME = 0.25f;
+    // Wall-clock time a frame may spend stepping at fixed speeds; leftover ticks carry over.
+    private static final long FRAME_BUDGET_NANOS = 12_000_000L;
+    // Wall-clock time per frame at max speed, which sets how often the screen is redrawn.
+    private static final long MAX_SPEED_BUDGET_NANOS = 100_000_000L;
+    // Spatial grid cell size; roughly the base tower range.
+    private static final float GRID_CELL_SIZE = 150;
+    // Tries at finding a spawn point outside walls before giving up and spawning in one.
+    private static final int MAX_SPAWN_ROLLS = 16;
+    // Viruses added to the pool, and slots to the store, per tick of wave cooldown, ready for
+    // the next wave.
+    private static final int PREALLOCATE_PER_TICK = 64;
+    // Placed towers: drawn size, and the price of the first one. Each one after costs as much
+    // again as the first.
+    public static final float RELAY_SIZE = 120;
+    private static final int RELAY_BASE_PRICE = 50;
+
+    // Game objects.
+    private final Tower tower;
+    // The main tower first, then relays in placement order.
+    private final Array<Tower> towers = new Array<>(true, 8, Tower.class);
+    private TowerIndex relays;
+    private final VirusStore viruses = new VirusStore(64);
+    private final EntityArray<Projectile> projectiles = new EntityArray<>(Projectile.class, 64);
+
+    // Spatial index over live viruses, used for target acquisition.
+    private final SpatialGrid grid = new SpatialGrid(WORLD_WIDTH, WORLD_HEIGHT, GRID_CELL_SIZE);
+    // Directions from anywhere on the map to the tower.
+    private FlowField flowField;
+    private final TargetScheduler scheduler = new TargetScheduler(grid);
+    private int nextSpawnId = 0;
+    // Lets the current wave out over time.
+    private final WaveSpawner spawner = new WaveSpawner();
+
+    // Pools, so steady-state combat and wave turnover allocate nothing.
+    private final Pool<Virus> virusPool = new Pool<Virus>(16) {
+        @Override
+        protected Virus newObject() {
+            return new Virus();
+        }
+    };
+    private final Pool<Projectile> projectilePool = new Pool<Projectile>(16) {
+        @Override
+        protected Projectile newObject() {
+            return new Projectile();
+        }
+    };
+
+    // Wave logic.
+    private int currentWave = 1;
+    private float waveCooldown = 2f;
+    private float waveTimer = 0f;
+
+    // Currency and stats. Kept up to date as things happen, never recounted.
+    private int gpEarned = 0;
+    private int enemiesKilled = 0;
+    private int aliveViruses = 0;
+
+    // Game state.
+    private boolean gameOver = false;
+    private float accumulator = 0f;
+    private long tick = 0;
+    private GameSpeed speed = GameSpeed.X1;
+    // While the current wave is below this, run flat out (skip to next wave).
+    private int skipToWave = 0;
+
+    // Per-game RNG. Every random roll in the simulation comes from here, so a seed plus the
+    // player's actions reproduce a run exactly.
+    private final long seed;
+    private final RandomXS128 random;
+    private Replay recording;
+    // Replay whose actions drive this world instead of the player, and its next action.
+    private Replay playback;
+    private int playbackIndex;
+    // What the last absence earned, if any.
+    private OfflineProgress offlineProgress;
+
+    private final EventBus events = new EventBus();
+    // Optional multi-core update phase; null runs everything on the calling thread.
+    private ParallelUpdater parallel;
+    // Optional phase timing; null when nobody is profiling.
+    private FrameProfiler profiler;
+
+    /**
+     * A game on open ground.
+     */
+    public GameWorld(long seed) {
+        this(seed, TerrainMap.open());
+    }
+
+    /**
+     * A game on the given map. The world works on its own copy.
+     */
+    public GameWorld(long seed, TerrainMap terrain) {
+        this.seed = seed;
+        random = new RandomXS128(seed);
+
+        // Create the tower at the center.
+        // Tower is rendered at 400x100.
+        float towerWidth = 400;
+        float towerHeight = 100;
+        float towerX = WORLD_WIDTH / 2f - towerWidth / 2f;
+        float towerY = WORLD_HEIGHT / 2f - towerHeight / 2f;
+        tower = new Tower(towerX, towerY, towerWidth, towerHeight);
+        towers.add(tower);
+        setTerrain(terrain.copy());
+
+        // Start the first wave; it begins spawning on the first tick.
+        beginWave(1);
+    }
+
+    private void setTerrain(TerrainMap terrain) {
+        flowField = new FlowField(terrain, tower.getCenterX(), tower.getCenterY());
+        viruses.setFlowField(flowField);
+        relays = new TowerIndex(terrain);
+    }
+
+    /**
+     * Pathing toward the tower. Cost changes made through it apply from the next tick.
+     */
+    public FlowField getFlowField() {
+        return flowField;
+    }
+
+    /**
+     * Simulation events: kills, tower damage, GP changes, wave transitions, purchases.
+     */
+    public EventBus getEvents() {
+        return events;
+    }
+
+    /**
+     * Record every player action from now on into the given replay.
+     */
+    public void setRecording(Replay recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Play the given replay's actions from index next on, each just before the tick it was
+     * recorded at, and ignore the player's own from then on. Pass null to stop.
+     */
+    public void setPlayback(Replay playback, int next) {
+        this.playback = playback;
+        playbackIndex = next;
+    }
+
+    /**
+     * Index of the next replay action to play back.
+     */
+    public int getPlaybackIndex() {
+        return playbackIndex;
+    }
+
+    /**
+     * Run the per-entity update phases on multiple cores. Results are identical to
+     * sequential mode; pass null to go back to it.
+     */
+    public void setParallelUpdater(ParallelUpdater parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Time each simulation phase into the given profiler; pass null to stop.
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Feed a frame delta into the accumulator, scaled by the game speed, and run as many fixed
+     * steps as it covers within the frame's time budget. Ticks that don't fit are caught up on
+     * later frames. At max speed (or while skipping a wave) it steps until the larger max-speed
+     * budget runs out instead. Returns the number of steps taken.
+     */
+    public int update(float frameDelta) {
+        long start = System.nanoTime();
+        int steps = 0;
+        if (isRunningFlatOut()) {
+            accumulator = 0;
+            long deadline = start + MAX_SPEED_BUDGET_NANOS;
+            while (!gameOver && isRunningFlatOut()) {
+                step();
+                steps++;
+                if ((steps & 15) == 0 && System.nanoTime() >= deadline) break;
+            }
+            return steps;
+        }
+        int multiplier = speed.getMultiplier();
+        accumulator += Math.min(frameDelta, MAX_FRAME_TIME) * multiplier;
+        long deadline = start + FRAME_BUDGET_NANOS;
+        while (accumulator >= STEP && !gameOver) {
+            step();
+            accumulator -= STEP;
+            steps++;
+            if (System.nanoTime() >= deadline) break;
+        }
+        // Don't let a backlog build up that could never be paid off.
+        accumulator = Math.min(accumulator, MAX_FRAME_TIME * multiplier);
+        return steps;
+    }
+
+    private boolean isRunningFlatOut() {
+        return speed == GameSpeed.MAX || currentWave < skipToWave;
+    }
+
+    public GameSpeed getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(GameSpeed speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Fast-forward through the rest of the current wave (and its cooldown) by stepping flat out
+     * until the next wave spawns.
+     */
+    public void skipToNextWave() {
+        skipToWave = currentWave + 1;
+    }
+
+    public boolean isSkipping() {
+        return currentWave < skipToWave;
+    }
+
+    /**
+     * Advance the simulation by exactly one fixed step.
+     */
+    public void step() {
+        // Played-back actions go in between ticks, where the player made them.
+        if (playback != null) {
+            while (playbackIndex < playback.size() && playback.getTick(playbackIndex) <= tick) {
+                apply(playback.getAction(playbackIndex++));
+            }
+        }
+        if (gameOver) return;
+        float delta = STEP;
+        tick++;
+
+        float towerCenterX = tower.getCenterX();
+        float towerCenterY = tower.getCenterY();
+
+        // Tower attacks: fire every shot earned this tick, across all towers.
+        begin(FrameProfiler.Phase.TARGETING);
+        scheduler.assign(towers, delta, projectilePool, projectiles);
+        end(FrameProfiler.Phase.TARGETING);
+
+        // Accumulate currency based on processor speed.
+        int gathered = tower.gatherCurrency(delta);
+        if (gathered > 0) {
+            gpEarned += gathered;
+            events.post(GameEvent.Type.GP_CHANGED, null, 0, gpEarned, null);
+        }
+
+        // Update viruses in bulk, then re-bucket them and let the circling ones attack. Map
+        // changes since the last tick are folded into the flow field first.
+        begin(FrameProfiler.Phase.MOVEMENT);
+        flowField.update();
+        if (parallel != null) parallel.moveViruses(viruses, delta, towerCenterX, towerCenterY);
+        else viruses.updateAll(delta, towerCenterX, towerCenterY);
+        for (int i = 0; i < viruses.size; i++) {
+            grid.update(viruses.views[i]);
+        }
+        end(FrameProfiler.Phase.MOVEMENT);
+        begin(FrameProfiler.Phase.VIRUS_ATTACKS);
+        float storageBefore = tower.getStorageTotal();
+        if (parallel != null) parallel.attackTowers(viruses, delta, tower, relays);
+        else viruses.attackAll(delta, tower, relays);
+        float storageAfter = tower.getStorageTotal();
+        if (storageAfter != storageBefore) {
+            events.post(GameEvent.Type.TOWER_DAMAGED, null, storageAfter - storageBefore, (int)storageAfter, null);
+        }
+        // A relay with full storage is lost, and its cell opens up again.
+        for (int i = towers.size - 1; i > 0; i--) {
+            Tower relay = towers.get(i);
+            if (relay.getStorageTotal() < relay.getStorageAvailable()) continue;
+            int cell = flowField.cellAt(relay.getCenterX(), relay.getCenterY());
+            towers.removeIndex(i);
+            relays.remove(cell);
+            TerrainMap terrain = flowField.getTerrain();
+            flowField.setCost(terrain.columnOf(cell), terrain.rowOf(cell), TerrainMap.OPEN);
+            events.post(GameEvent.Type.TOWER_DESTROYED, null, 0, cell, null);
+        }
+        end(FrameProfiler.Phase.VIRUS_ATTACKS);
+
+        // Move projectiles, then apply hits (and any kills they cause) in list order.
+        begin(FrameProfiler.Phase.PROJECTILES);
+        if (parallel != null) {
+            parallel.updateProjectiles(projectiles, delta);
+        } else {
+            for (int i = 0; i < projectiles.size(); i++) projectiles.get(i).update(delta);
+        }
+        end(FrameProfiler.Phase.PROJECTILES);
+        begin(FrameProfiler.Phase.COLLISIONS);
+        int kills = 0;
+        for (int i = 0; i < projectiles.size(); i++) {
+            Projectile p = projectiles.get(i);
+            if (p.hasCollided()) {
+                Virus target = p.getTarget();
+                target.decreaseHealth(p.getDamage());
+                events.post(GameEvent.Type.PROJECTILE_HIT, target, p.getDamage(), 0, null);
+                if (!target.isAlive() && !target.isKillProcessed()) {
+                    processKill(target.getIndex());
+                    kills++;
+                }
+            }
+        }
+
+        // Drop this tick's dead viruses, then every projectile that landed, lost its target or
+        // expired. A surviving target no longer counts on their damage.
+        if (kills > 0) viruses.removeDead(virusPool);
+        for (int i = 0; i < projectiles.size(); i++) {
+            Projectile p = projectiles.get(i);
+            if (p.hasCollided() || p.isExpired() || !p.hasValidTarget()) {
+                if (p.hasValidTarget()) p.getTarget().addPendingDamage(-p.getDamage());
+                projectiles.remove(i);
+                projectilePool.free(p);
+            }
+        }
+        projectiles.compact();
+        end(FrameProfiler.Phase.COLLISIONS);
+
+        // Tower storage full means the game is lost.
+        if (tower.getStorageTotal() >= tower.getStorageAvailable()) {
+            gameOver = true;
+            events.post(GameEvent.Type.GAME_OVER);
+            return;
+        }
+
+        // Wave spawn logic. The next wave's viruses are set aside during the cooldown, then
+        // the wave is let out a budget's worth per tick.
+        begin(FrameProfiler.Phase.WAVES);
+        if (spawner.isFinished() && aliveViruses == 0) {
+            waveTimer += delta;
+            prepareWave(currentWave + 1);
+            if (waveTimer >= waveCooldown) beginWave(currentWave + 1);
+        }
+        if (!spawner.isFinished()) releaseSpawns(delta);
+        end(FrameProfiler.Phase.WAVES);
+    }
+
+    private void begin(FrameProfiler.Phase phase) {
+        if (profiler != null) profiler.begin(phase);
+    }
+
+    private void end(FrameProfiler.Phase phase) {
+        if (profiler != null) profiler.end(phase);
+    }
+
+    // Count a kill, take the virus out of targeting and roll its currency drop.
+    private void processKill(int slot) {
+        viruses.flags[slot] |= VirusStore.KILL_PROCESSED;
+        Virus virus = viruses.views[slot];
+        grid.remove(virus);
+        enemiesKilled++;
+        aliveViruses--;
+        events.post(GameEvent.Type.VIRUS_KILLED, virus, 0, enemiesKilled, null);
+        // 1 in 3 chance to drop 1-10 GP.
+        int dropChance = 1 + random.nextInt(3);
+        if (dropChance == 1) {
+            gpEarned += 1 + random.nextInt(10);
+            events.post(GameEvent.Type.GP_CHANGED, null, 0, gpEarned, null);
+        }
+        if (aliveViruses == 0 && spawner.isFinished()) {
+            events.post(GameEvent.Type.WAVE_CLEARED, null, 0, currentWave, null);
+        }
+    }
+
+    /**
+     * Jump straight to the given wave and spawn all of it at once. Used by headless tools and
+     * benchmarks.
+     */
+    void startWave(int wave) {
+        beginWave(wave);
+        spawn(spawner.getRemaining());
+    }
+
+    private static int enemyCount(int wave) {
+        return wave * 10;
+    }
+
+    // Top up the pool and the store for a wave a little each tick, so starting it allocates
+    // nothing. Each wave is only ten bigger than the last, so one step covers several waves.
+    private void prepareWave(int wave) {
+        int count = enemyCount(wave);
+        if (viruses.capacity() < count) viruses.reserve(viruses.capacity() + PREALLOCATE_PER_TICK);
+        int missing = count - virusPool.getFree();
+        if (missing > 0) virusPool.fill(Math.min(missing, PREALLOCATE_PER_TICK));
+    }
+
+    /**
+     * Start a wave: clear out the last one and set up the new one's release schedule. Nothing
+     * spawns until {@link #releaseSpawns(float)}.
+     */
+    void beginWave(int wave) {
+        currentWave = wave;
+        clearField();
+        // Whatever the cooldown didn't get to grows on demand as the wave is let out.
+        int count = enemyCount(wave);
+        spawner.begin(SpawnPattern.forWave(wave), count);
+        events.post(GameEvent.Type.WAVE_SPAWNED, null, 0, currentWave, null);
+    }
+
+    // Return every virus to the pool. Anything still in flight was aimed at them.
+    private void clearField() {
+        waveTimer = 0f;
+        grid.clear();
+        for (int i = 0; i < viruses.size; i++) virusPool.free(viruses.views[i]);
+        viruses.clear();
+        for (int i = 0; i < projectiles.size(); i++) projectilePool.free(projectiles.get(i));
+        projectiles.clear();
+        aliveViruses = 0;
+    }
+
+    /**
+     * Let out the viruses the wave's schedule owes after delta more seconds, up to
+     * {@link WaveSpawner#SPAWN_BUDGET}. Returns how many spawned.
+     */
+    int releaseSpawns(float delta) {
+        int count = spawner.advance(delta, WaveSpawner.SPAWN_BUDGET);
+        spawn(count);
+        return count;
+    }
+
+    private void spawn(int count) {
+        for (int i = 0; i < count; i++) {
+            int index = spawner.next();
+            float spawnX = 0;
+            float spawnY = spawner.rollY(index, random);
+            for (int roll = 1; roll < MAX_SPAWN_ROLLS && isWall(spawnX, spawnY); roll++) {
+                spawnY = spawner.rollY(index, random);
+            }
+            // Effective speed = currentWave + 100.
+            Virus virus = viruses.add(virusPool.obtain(), spawnX, spawnY, currentWave + 100, nextSpawnId++);
+            grid.insert(virus);
+        }
+        aliveViruses += count;
+    }
+
+    private boolean isWall(float virusX, float virusY) {
+        return flowField.getTerrain().isBlocked(flowField.cellAt(virusX + Virus.SIZE / 2f, virusY + Virus.SIZE / 2f));
+    }
+
+    /**
+     * Buy one level of an upgrade if the GP balance covers it. Returns false (and spends
+     * nothing) otherwise.
+     */
+    public boolean purchase(Upgrade upgrade) {
+        return perform(Replay.purchaseAction(upgrade));
+    }
+
+    /**
+     * Buy count levels of an upgrade in one go, or nothing if the balance doesn't cover all of them.
+     */
+    public boolean purchase(Upgrade upgrade, int count) {
+        return perform(Replay.purchaseAction(upgrade, count));
+    }
+
+    /**
+     * Buy as many levels of an upgrade as the balance covers. Returns the number bought.
+     */
+    public int purchaseMax(Upgrade upgrade) {
+        int count = getAffordableCount(upgrade, Replay.MAX_PURCHASE_COUNT);
+        if (count == 0 || !purchase(upgrade, count)) return 0;
+        return count;
+    }
+
+    /**
+     * How many levels of an upgrade the current balance buys, up to limit.
+     */
+    public int getAffordableCount(Upgrade upgrade, int limit) {
+        return PriceTable.affordable(tower.getLevel(upgrade), gpEarned, limit);
+    }
+
+    /**
+     * Switch the tower's targeting strategy.
+     */
+    public void setTargeting(Targeting targeting) {
+        perform(Replay.targetingAction(targeting));
+    }
+
+    /**
+     * Switch how the tower's projectiles steer.
+     */
+    public void setGuidance(Guidance guidance) {
+        perform(Replay.guidanceAction(guidance));
+    }
+
+    /**
+     * Place a relay tower on a map cell, if the cell is open ground away from the main tower
+     * and the balance covers {@link #getRelayPrice()}. The cell becomes a wall for pathing.
+     */
+    public boolean placeTower(int column, int row) {
+        TerrainMap terrain = flowField.getTerrain();
+        if (column < 0 || column >= terrain.getColumns() || row < 0 || row >= terrain.getRows()) return false;
+        return perform(Replay.placeAction(terrain.cell(column, row)));
+    }
+
+    public boolean canPlaceTower(int cell) {
+        TerrainMap terrain = flowField.getTerrain();
+        return cell >= 0 && cell < terrain.getCellCount() && terrain.getCost(cell) == TerrainMap.OPEN
+            && !flowField.isGoal(cell) && relays.get(cell) == null && gpEarned >= getRelayPrice();
+    }
+
+    /**
+     * Price of the next relay tower.
+     */
+    public int getRelayPrice() {
+        return RELAY_BASE_PRICE * towers.size;
+    }
+
+    /**
+     * Hand out what the game would have earned over secondsAway (see {@link OfflineProgress}).
+     * Returns the progress credited, or null if there was nothing to credit.
+     */
+    public OfflineProgress resumeAfter(long secondsAway) {
+        long seconds = Math.min(secondsAway, OfflineProgress.MAX_SECONDS);
+        if (seconds < OfflineProgress.MIN_SECONDS) return null;
+        return perform(Replay.offlineAction(seconds)) ? offlineProgress : null;
+    }
+
+    /**
+     * What the last absence credited, or null if there hasn't been one.
+     */
+    public OfflineProgress getOfflineProgress() {
+        return offlineProgress;
+    }
+
+    private void applyOfflineProgress(OfflineProgress progress) {
+        gpEarned = (int)Math.min(Integer.MAX_VALUE, gpEarned + progress.getGp());
+        enemiesKilled = (int)Math.min(Integer.MAX_VALUE, enemiesKilled + progress.getKills());
+        if (progress.getStorageDamage() > 0) {
+            tower.addStorageDamage(progress.getStorageDamage());
+            events.post(GameEvent.Type.TOWER_DAMAGED, null, progress.getStorageDamage(), (int)tower.getStorageTotal(), null);
+        }
+        if (progress.getWavesCleared() > 0) {
+            // Pick up in the cooldown after the last wave cleared.
+            currentWave = progress.getNextWave() - 1;
+            clearField();
+            spawner.begin(SpawnPattern.forWave(currentWave), 0);
+        } else if (progress.getKills() > 0) {
+            thinWave((int)progress.getKills());
+        }
+        offlineProgress = progress;
+        events.post(GameEvent.Type.OFFLINE_PROGRESS, null, 0, progress.getWavesCleared(), null);
+        events.post(GameEvent.Type.GP_CHANGED, null, 0, gpEarned, null);
+    }
+
+    // Take count viruses of the wave in progress out as killed while away: the earliest
+    // spawned on the field first, then ones not yet let out.
+    private void thinWave(int count) {
+        int taken = 0;
+        for (int i = 0; i < viruses.size && taken < count; i++) {
+            if (viruses.health[i] <= 0) continue;
+            viruses.health[i] = 0;
+            viruses.flags[i] |= VirusStore.KILL_PROCESSED;
+            grid.remove(viruses.views[i]);
+            aliveViruses--;
+            taken++;
+        }
+        if (taken > 0) {
+            viruses.removeDead(virusPool);
+            // Shots in flight at the thinned viruses have nothing left to hit.
+            for (int i = 0; i < projectiles.size(); i++) {
+                Projectile p = projectiles.get(i);
+                if (p.hasValidTarget()) continue;
+                projectiles.remove(i);
+                projectilePool.free(p);
+            }
+            projectiles.compact();
+        }
+        spawner.skip(count - taken);
+    }
+
+    /**
+     * An independent world in the same state, for running ahead without touching this one.
+     */
+    GameWorld copy() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeState(new DataOutputStream(bytes));
+            GameWorld copy = new GameWorld(seed, flowField.getTerrain());
+            copy.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            return copy;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy world", e);
+        }
+    }
+
+    private Tower addRelay(int cell) {
+        TerrainMap terrain = flowField.getTerrain();
+        float x = terrain.getCellX(cell) + terrain.getCellWidth() / 2f - RELAY_SIZE / 2f;
+        float y = terrain.getCellY(cell) + terrain.getCellHeight() / 2f - RELAY_SIZE / 2f;
+        Tower relay = new Tower(x, y, RELAY_SIZE, RELAY_SIZE, tower);
+        towers.add(relay);
+        relays.add(cell, relay);
+        return relay;
+    }
+
+    /**
+     * Apply an encoded player action (see {@link Replay}) between ticks, recording it if it
+     * changed anything. Ignored while a replay is playing back.
+     */
+    public boolean perform(int action) {
+        return playback == null && apply(action);
+    }
+
+    private boolean apply(int action) {
+        if (gameOver) return false;
+        if (Replay.isPurchase(action)) {
+            Upgrade upgrade = Replay.upgradeOf(action);
+            int count = Replay.countOf(action);
+            long price = PriceTable.cost(tower.getLevel(upgrade), count);
+            if (gpEarned < price) return false;
+            gpEarned -= (int)price;
+            tower.upgrade(upgrade, count);
+            events.post(GameEvent.Type.UPGRADE_PURCHASED, null, 0, tower.getLevel(upgrade), upgrade);
+            events.post(GameEvent.Type.GP_CHANGED, null, 0, gpEarned, null);
+        } else if (Replay.isPlacement(action)) {
+            int cell = Replay.cellOf(action);
+            if (!canPlaceTower(cell)) return false;
+            gpEarned -= getRelayPrice();
+            addRelay(cell);
+            TerrainMap terrain = flowField.getTerrain();
+            flowField.setCost(terrain.columnOf(cell), terrain.rowOf(cell), TerrainMap.BLOCKED);
+            events.post(GameEvent.Type.TOWER_PLACED, null, 0, cell, null);
+            events.post(GameEvent.Type.GP_CHANGED, null, 0, gpEarned, null);
+        } else if (Replay.isOffline(action)) {
+            OfflineProgress progress = OfflineProgress.estimate(this, Replay.secondsOf(action));
+            if (progress.isEmpty()) return false;
+            applyOfflineProgress(progress);
+        } else if (Replay.isGuidance(action)) {
+            tower.setGuidance(Replay.guidanceOf(action));
+        } else {
+            tower.setTargeting(Replay.targetingOf(action));
+        }
+        if (recording != null) recording.record(tick, action);
+        return true;
+    }
+
+    /**
+     * Write the full simulation state. Frame pacing and listeners are not part of it.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        out.writeLong(random.getState(0));
+        out.writeLong(random.getState(1));
+        out.writeLong(tick);
+        out.writeInt(currentWave);
+        out.writeFloat(waveTimer);
+        out.writeInt(gpEarned);
+        out.writeInt(enemiesKilled);
+        out.writeBoolean(gameOver);
+        out.writeInt(nextSpawnId);
+        spawner.write(out);
+        flowField.getTerrain().write(out);
+        tower.write(out);
+        out.writeInt(towers.size - 1);
+        for (int i = 1; i < towers.size; i++) {
+            Tower relay = towers.get(i);
+            out.writeInt(flowField.cellAt(relay.getCenterX(), relay.getCenterY()));
+            relay.writeRelay(out);
+        }
+        out.writeInt(viruses.size);
+        for (int i = 0; i < viruses.size; i++) viruses.write(out, i);
+        // A projectile whose target is gone has nothing to point at; it would be dropped next tick.
+        int shots = 0;
+        for (int i = 0; i < projectiles.size(); i++) if (projectiles.get(i).hasValidTarget()) shots++;
+        out.writeInt(shots);
+        for (int i = 0; i < projectiles.size(); i++) {
+            Projectile p = projectiles.get(i);
+            if (!p.hasValidTarget()) continue;
+            out.writeInt(p.getTarget().getIndex());
+            p.write(out);
+        }
+    }
+
+    /**
+     * Replace the simulation state with one written by {@link #writeState}.
+     */
+    public void readState(DataInput in) throws IOException {
+        if (in.readLong() != seed) throw new IOException("Snapshot belongs to a different game seed");
+        long s0 = in.readLong(), s1 = in.readLong();
+        random.setState(s0, s1);
+        tick = in.readLong();
+        currentWave = in.readInt();
+        waveTimer = in.readFloat();
+        gpEarned = in.readInt();
+        enemiesKilled = in.readInt();
+        gameOver = in.readBoolean();
+        nextSpawnId = in.readInt();
+        spawner.read(in);
+        setTerrain(TerrainMap.read(in));
+        tower.read(in);
+        towers.truncate(1);
+        int relayCount = in.readInt();
+        for (int i = 0; i < relayCount; i++) addRelay(in.readInt()).readRelay(in);
+
+        grid.clear();
+        for (int i = 0; i < viruses.size; i++) virusPool.free(viruses.views[i]);
+        viruses.clear();
+        int virusCount = in.readInt();
+        viruses.ensureCapacity(virusCount);
+        for (int i = 0; i < virusCount; i++) {
+            Virus virus = viruses.read(in, virusPool.obtain());
+            if (!virus.isKillProcessed()) grid.insert(virus);
+        }
+        aliveViruses = viruses.countAlive();
+
+        for (int i = 0; i < projectiles.size(); i++) projectilePool.free(projectiles.get(i));
+        projectiles.clear();
+        int projectileCount = in.readInt();
+        for (int i = 0; i < projectileCount; i++) {
+            Projectile p = projectilePool.obtain();
+            p.read(in, viruses.views[in.readInt()]);
+            p.getTarget().addPendingDamage(p.getDamage());
+            projectiles.add(p);
+        }
+        accumulator = 0;
+    }
+
+    public int getAliveVirusCount() {
+        return aliveViruses;
+    }
+
+    /**
+     * Viruses left in the current wave: those alive plus those not yet spawned.
+     */
+    public int getEnemiesRemaining() {
+        return aliveViruses + spawner.getRemaining();
+    }
+
+    public WaveSpawner getSpawner() {
+        return spawner;
+    }
+
+    /**
+     * The main tower, which holds the upgrades.
+     */
+    public Tower getTower() {
+        return tower;
+    }
+
+    /**
+     * Every tower: the main one first, then relays in placement order.
+     */
+    public Array<Tower> getTowers() {
+        return towers;
+    }
+
+    public VirusStore getViruses() {
+        return viruses;
+    }
+
+    public EntityArray<Projectile> getProjectiles() {
+        return projectiles;
+    }
+
+    /**
+     * Seconds between clearing a wave and the next one starting.
+     */
+    public float getWaveCooldown() {
+        return waveCooldown;
+    }
+
+    public int getCurrentWave() {
+        return currentWave;
+    }
+
+    public int getGpEarned() {
+        return gpEarned;
+    }
+
+    /**
+     * All GP earned this game, including what has since been spent.
+     */
+    public long getTotalGpEarned() {
+        return gpEarned + tower.getGpSpent();
+    }
+
+    public int getEnemiesKilled() {
+        return enemiesKilled;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public RandomXS128 getRandom() {
+        return random;
+    }
+}
@@ -0,0 +1,26 @@
+package com.keviqn;
+
+/**
+ * How a projectile steers toward its target.
+ */
+public enum Guidance {
+    // Re-aim at the target every tick. Always catches a target slower than the projectile.
+    HOMING("Homing"),
+    // Aim once, at the point where the target will be if it keeps its current velocity.
+    LEAD("Lead");
+
+    private final String label;
+
+    Guidance(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Guidance next() {
+        Guidance[] all = values();
+        return all[(ordinal() + 1) % all.length];
+    }
+}
@@ -0,0 +1,151 @@
+package com.keviqn;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Running totals over every recorded run and wave. Each record folds in with
+ * {@link #addRun}/{@link #addWave}, so reading any figure, percentiles included, costs the same
+ * whether there is one run behind it or ten thousand.
+ */
+public class LifetimeStats {
+    // Final waves above this share the last histogram bucket.
+    static final int MAX_TRACKED_WAVE = 255;
+
+    int runs;
+    int bestWave;
+    long totalWaves;
+    long totalKills;
+    long totalGp;
+    long totalUpgrades;
+    long totalTicks;
+    int maxProjectiles;
+    int wavesCleared;
+    long totalWaveTicks;
+    int fastestWaveTicks;
+    // Runs by final wave, for percentiles.
+    final int[] waveHistogram = new int[MAX_TRACKED_WAVE + 1];
+
+    void addRun(int wave, long ticks, int kills, long gp, long upgrades, int projectiles) {
+        runs++;
+        bestWave = Math.max(bestWave, wave);
+        totalWaves += wave;
+        totalKills += kills;
+        totalGp += gp;
+        totalUpgrades += upgrades;
+        totalTicks += ticks;
+        maxProjectiles = Math.max(maxProjectiles, projectiles);
+        waveHistogram[Math.min(Math.max(wave, 0), MAX_TRACKED_WAVE)]++;
+    }
+
+    void addWave(long ticks, int projectiles) {
+        wavesCleared++;
+        totalWaveTicks += ticks;
+        if (fastestWaveTicks == 0 || ticks < fastestWaveTicks) fastestWaveTicks = (int)Math.min(ticks, Integer.MAX_VALUE);
+        maxProjectiles = Math.max(maxProjectiles, projectiles);
+    }
+
+    void clear() {
+        runs = bestWave = maxProjectiles = wavesCleared = fastestWaveTicks = 0;
+        totalWaves = totalKills = totalGp = totalUpgrades = totalTicks = totalWaveTicks = 0;
+        Arrays.fill(waveHistogram, 0);
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    public int getBestWave() {
+        return bestWave;
+    }
+
+    public float getAverageWave() {
+        return runs == 0 ? 0 : (float)totalWaves / runs;
+    }
+
+    /**
+     * The final wave that the given fraction of runs reached or fell short of, e.g. 0.9 for p90.
+     */
+    public int getWavePercentile(float fraction) {
+        if (runs == 0) return 0;
+        long rank = Math.max(1, (long)Math.ceil(fraction * runs));
+        long seen = 0;
+        for (int wave = 0; wave < waveHistogram.length; wave++) {
+            seen += waveHistogram[wave];
+            if (seen >= rank) return wave;
+        }
+        return MAX_TRACKED_WAVE;
+    }
+
+    public long getTotalKills() {
+        return totalKills;
+    }
+
+    public float getAverageKills() {
+        return runs == 0 ? 0 : (float)totalKills / runs;
+    }
+
+    public long getTotalGp() {
+        return totalGp;
+    }
+
+    public float getAverageGp() {
+        return runs == 0 ? 0 : (float)totalGp / runs;
+    }
+
+    public long getTotalUpgrades() {
+        return totalUpgrades;
+    }
+
+    public float getPlayTime() {
+        return totalTicks * GameWorld.STEP;
+    }
+
+    public int getMaxProjectiles() {
+        return maxProjectiles;
+    }
+
+    public int getWavesCleared() {
+        return wavesCleared;
+    }
+
+    public float getAverageWaveTime() {
+        return wavesCleared == 0 ? 0 : totalWaveTicks * GameWorld.STEP / wavesCleared;
+    }
+
+    public float getFastestWaveTime() {
+        return fastestWaveTicks * GameWorld.STEP;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(runs);
+        out.writeInt(bestWave);
+        out.writeLong(totalWaves);
+        out.writeLong(totalKills);
+        out.writeLong(totalGp);
+        out.writeLong(totalUpgrades);
+        out.writeLong(totalTicks);
+        out.writeInt(maxProjectiles);
+        out.writeInt(wavesCleared);
+        out.writeLong(totalWaveTicks);
+        out.writeInt(fastestWaveTicks);
+        for (int count : waveHistogram) Replay.writeVarLong(out, count);
+    }
+
+    void read(DataInputStream in) throws IOException {
+        runs = in.readInt();
+        bestWave = in.readInt();
+        totalWaves = in.readLong();
+        totalKills = in.readLong();
+        totalGp = in.readLong();
+        totalUpgrades = in.readLong();
+        totalTicks = in.readLong();
+        maxProjectiles = in.readInt();
+        wavesCleared = in.readInt();
+        totalWaveTicks = in.readLong();
+        fastestWaveTicks = in.readInt();
+        for (int i = 0; i < waveHistogram.length; i++) waveHistogram[i] = (int)Replay.readVarLong(in);
+    }
+}
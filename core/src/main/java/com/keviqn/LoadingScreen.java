@@ -0,0 +1,78 @@
+package com.keviqn;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+
+/**
+ * Shown at startup while the preloaded assets come in, then hands over to the main menu. The
+ * skin is one of the things loading, so the progress bar is drawn with plain shapes.
+ */
+public class LoadingScreen implements Screen {
+    // Render-thread time per frame spent finishing loads (texture uploads and the like).
+    private static final int LOAD_BUDGET_MILLIS = 12;
+    private static final Color TRACK_COLOR = new Color(0.25f, 0.25f, 0.25f, 1);
+    private static final Color BAR_COLOR = new Color(0.2f, 0.8f, 0.3f, 1);
+
+    private final Main game;
+    private final OrthographicCamera camera = new OrthographicCamera();
+    private final ShapeRenderer shapes = new ShapeRenderer();
+    private boolean done;
+
+    public LoadingScreen(Main game) {
+        this.game = game;
+        camera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+    }
+
+    @Override
+    public void show() { }
+
+    @Override
+    public void render(float delta) {
+        if (done) return;
+        Assets assets = game.getAssets();
+        if (assets.update(LOAD_BUDGET_MILLIS)) {
+            done = true;
+            game.setScreen(new MainMenuScreen(game));
+            // Release this screen's resources once the current frame has finished with them.
+            Gdx.app.postRunnable(this::dispose);
+            return;
+        }
+
+        Gdx.gl.glClearColor(0.1f, 0.1f, 0.1f, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        float width = camera.viewportWidth * 0.6f;
+        float height = 40;
+        float x = (camera.viewportWidth - width) / 2f;
+        float y = (camera.viewportHeight - height) / 2f;
+        shapes.setProjectionMatrix(camera.combined);
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+        shapes.setColor(TRACK_COLOR);
+        shapes.rect(x, y, width, height);
+        shapes.setColor(BAR_COLOR);
+        shapes.rect(x, y, width * assets.getProgress(), height);
+        shapes.end();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        camera.setToOrtho(false, width, height);
+    }
+
+    @Override
+    public void pause() { }
+
+    @Override
+    public void resume() { }
+
+    @Override
+    public void hide() { }
+
+    @Override
+    public void dispose() {
+        shapes.dispose();
+    }
+}
@@ -1,10 +1,37 @@
 package com.keviqn;
 
 import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
 
 public class Main extends Game {
+    private Assets assets;
+    private StatsStore stats;
+
     @Override
     public void create() {
-        setScreen(new MainMenuScreen(this));
+        // Load everything up front behind a progress bar, so no screen switch waits on the disk.
+        assets = new Assets();
+        assets.preload();
+        stats = new StatsStore(Gdx.files.local("stats"));
+        setScreen(new LoadingScreen(this));
+    }
+
+    public Assets getAssets() {
+        return assets;
+    }
+
+    public StatsStore getStats() {
+        return stats;
+    }
+
+    @Override
+    public void dispose() {
+        // Game only hides the current screen; release it too before the assets it borrows.
+        Screen current = getScreen();
+        super.dispose();
+        if (current != null) current.dispose();
+        stats.dispose();
+        assets.dispose();
     }
 }
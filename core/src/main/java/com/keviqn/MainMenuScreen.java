@@ -2,6 +2,7 @@ package com.keviqn;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
@@ -9,8 +10,11 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class MainMenuScreen implements Screen {
 
@@ -25,8 +29,8 @@ public class MainMenuScreen implements Screen {
         stage = new Stage(new ScreenViewport());
         Gdx.input.setInputProcessor(stage);
 
-        // Load the UI skin (ensure uiskin.json, uiskin.atlas, and uiskin.png are in your android/assets folder)
-        skin = new Skin(Gdx.files.internal("uiskin.json"));
+        // The UI skin is loaded once at startup and shared.
+        skin = game.getAssets().getSkin();
 
         // Create a root table that fills the screen.
         Table rootTable = new Table();
@@ -42,29 +46,89 @@ public class MainMenuScreen implements Screen {
         // Create a table to hold the buttons (centered in the middle of the screen)
         Table buttonTable = new Table();
 
-        // Calculate button sizes based on 80% of width and 30% of height.
+        // Offer to continue if there is a game in progress.
+        final FileHandle saveFile = Gdx.files.local(GameScreen.SAVE_FILE);
+        boolean canContinue = saveFile.exists();
+        // And to watch the last finished game.
+        final FileHandle replayFile = Gdx.files.local(GameScreen.REPLAY_FILE);
+        boolean canWatch = replayFile.exists();
+
+        // Calculate button sizes based on 80% of width, and 60% of height shared by the buttons.
+        int buttonCount = 2 + (canContinue ? 1 : 0) + (canWatch ? 1 : 0);
         float buttonWidth = 2400 * 0.8f;  // 1920 pixels
-        float buttonHeight = 1080 * 0.3f; // 324 pixels
+        float buttonHeight = 1080 * 0.6f / buttonCount; // 324 pixels with two buttons, 162 with four
+
+        // Create the Continue button.
+        TextButton continueButton = new TextButton("Continue", skin);
+        continueButton.getLabel().setFontScale(5);
+        continueButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
+                SaveGame save = null;
+                try {
+                    save = SaveGame.load(saveFile);
+                } catch (IOException e) {
+                    Gdx.app.error("MainMenuScreen", "Could not load save, starting a new game", e);
+                }
+                game.setScreen(new GameScreen(game, save));
+                // Release this screen's resources once the current frame has finished with them.
+                Gdx.app.postRunnable(MainMenuScreen.this::dispose);
+            }
+        });
 
         // Create the Play button.
-        TextButton playButton = new TextButton("Play", skin);
+        TextButton playButton = new TextButton(canContinue ? "New Game" : "Play", skin);
         playButton.getLabel().setFontScale(5); // Make the button text large
         playButton.addListener(new ChangeListener() {
             @Override
             public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
                 // When Play is pressed, switch to the game screen.
                 game.setScreen(new GameScreen(game));
+                Gdx.app.postRunnable(MainMenuScreen.this::dispose);
             }
         });
 
         // Create the Stats button.
         TextButton statsButton = new TextButton("Stats", skin);
         statsButton.getLabel().setFontScale(5);
+        statsButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
+                game.setScreen(new StatsScreen(game));
+                Gdx.app.postRunnable(MainMenuScreen.this::dispose);
+            }
+        });
+
+        // Create the Watch Replay button.
+        TextButton watchButton = new TextButton("Watch Replay", skin);
+        watchButton.getLabel().setFontScale(5);
+        watchButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
+                Replay replay;
+                try (InputStream in = replayFile.read()) {
+                    replay = Replay.read(in);
+                } catch (IOException | GdxRuntimeException e) {
+                    Gdx.app.error("MainMenuScreen", "Could not load replay", e);
+                    return;
+                }
+                game.setScreen(GameScreen.watch(game, replay));
+                Gdx.app.postRunnable(MainMenuScreen.this::dispose);
+            }
+        });
 
         // Add the buttons to the button table.
+        if (canContinue) {
+            buttonTable.add(continueButton).width(buttonWidth).height(buttonHeight).padBottom(50);
+            buttonTable.row();
+        }
         buttonTable.add(playButton).width(buttonWidth).height(buttonHeight).padBottom(50);
         buttonTable.row();
         buttonTable.add(statsButton).width(buttonWidth).height(buttonHeight);
+        if (canWatch) {
+            buttonTable.row();
+            buttonTable.add(watchButton).width(buttonWidth).height(buttonHeight).padTop(50);
+        }
 
         // Layout the root table:
         // 1. Place the title at the top with minimal top padding so it's higher.
@@ -104,6 +168,5 @@ public class MainMenuScreen implements Screen {
     @Override
     public void dispose() {
         stage.dispose();
-        skin.dispose();
     }
 }
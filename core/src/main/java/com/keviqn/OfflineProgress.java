@@ -0,0 +1,178 @@
+package com.keviqn;
+
+/**
+ * What a game earns while the app is away, worked out without stepping the world through the
+ * missing time.
+ * <p>
+ * Processor income is exact: the main tower pays out a fixed amount every so many ticks, so
+ * the payouts over any stretch of time are a division. The wave in progress is played out on a
+ * copy of the world for up to a short sample, and whatever the sample leaves is killed at the
+ * main tower's rate. If the time runs out first, the sample's kills are still credited, and
+ * that many viruses come off the wave when the game resumes. Every wave after that is costed
+ * from the rules:
+ * wave w holds 10w viruses moving at w + 100, which take the flow-field path to reach tower
+ * range and arrive over the wave's spread time. The main tower kills them at its fire rate
+ * divided by the shots a kill takes, and whatever it can't kill before they reach it attacks
+ * storage until it can. Each wave's time and storage damage are a few lines of arithmetic,
+ * summed wave by wave. Kill drops are credited at their expected value, and the storage damage
+ * is taken by the main tower.
+ * <p>
+ * The estimate errs low: relays aren't counted, the cooldown before the first wave is counted
+ * in full, and a later wave still in progress when the time runs out earns nothing and does no
+ * damage.
+ * <p>
+ * A game that would have been lost while away is credited only up to the point where it would
+ * have fallen: income, kills and damage stop just short of it, and the game carries on from
+ * there when it resumes. The whole estimate is a function of the world state and the
+ * time away, so a replay that applies it at the same tick gets the same result.
+ */
+public final class OfflineProgress {
+    // Shorter absences aren't worth a sample run.
+    public static final long MIN_SECONDS = 60;
+    // Longest absence credited.
+    public static final long MAX_SECONDS = 24 * 60 * 60;
+    // Most simulated time spent finishing the wave in progress.
+    private static final int SAMPLE_TICKS = 30 * 60;
+    // Each kill has a 1 in 3 chance to drop 1-10 GP: 11/6 GP on average.
+    private static final double GP_PER_KILL = 11.0 / 6.0;
+
+    private final long seconds;
+    private final int wavesCleared;
+    private final int nextWave;
+    private final long kills;
+    private final long gp;
+    private final float storageDamage;
+
+    private OfflineProgress(long seconds, int wavesCleared, int nextWave, long kills, long gp, float storageDamage) {
+        this.seconds = seconds;
+        this.wavesCleared = wavesCleared;
+        this.nextWave = nextWave;
+        this.kills = kills;
+        this.gp = gp;
+        this.storageDamage = storageDamage;
+    }
+
+    /**
+     * Estimate what the world would have earned over awaySeconds. Leaves the world untouched.
+     */
+    public static OfflineProgress estimate(GameWorld world, long awaySeconds) {
+        double credited = Math.max(0, Math.min(awaySeconds, MAX_SECONDS));
+        Tower tower = world.getTower();
+        int wave = world.getCurrentWave();
+        float cooldown = world.getWaveCooldown();
+        double killRate = tower.getProcessorSpeed() / (double)tower.getShotsPerKill();
+
+        // Finish the wave in progress on a copy.
+        GameWorld sample = world.copy();
+        int ticks = 0, sampleTicks = (int)Math.min(SAMPLE_TICKS, credited / GameWorld.STEP);
+        double storage = tower.getStorageTotal();
+        while (ticks < sampleTicks && sample.getEnemiesRemaining() > 0 && !sample.isGameOver()) {
+            sample.step();
+            ticks++;
+            // The tick that fills the storage isn't credited.
+            if (!sample.isGameOver()) storage = sample.getTower().getStorageTotal();
+        }
+        double elapsed = ticks * GameWorld.STEP;
+        int cleared = 0;
+        long kills = sample.getEnemiesKilled() - world.getEnemiesKilled();
+        // Last wave cleared so far.
+        int last = world.getEnemiesRemaining() == 0 ? wave : wave - 1;
+        if (sample.isGameOver()) {
+            credited = Math.min(credited, elapsed);
+        } else if (world.getEnemiesRemaining() > 0) {
+            elapsed += sample.getEnemiesRemaining() / killRate;
+            if (elapsed <= credited) {
+                cleared = 1;
+                kills = world.getEnemiesRemaining();
+                last = wave;
+            }
+        }
+        elapsed += cooldown;
+
+        // Then whole waves, for as long as the time and the storage last.
+        double travel = pathLength(world) - tower.getRange();
+        while (last >= wave) {
+            int w = last + 1;
+            int count = 10 * w;
+            float speed = w + 100;
+            float spread = SpawnPattern.spreadTime(count);
+            double time = Math.max(0, travel) / speed + Math.max(spread, count / killRate);
+            if (elapsed + time > credited) break;
+            // Viruses not killed before they cross the range to the tower attack it until
+            // the backlog is cleared.
+            double backlog = count - killRate * (spread + (tower.getRange() - VirusStore.THRESHOLD) / speed);
+            if (backlog > 0) {
+                double damage = Virus.DAMAGE * backlog * backlog / killRate;
+                if (storage + damage >= tower.getStorageAvailable()) {
+                    credited = Math.min(credited, elapsed + time);
+                    break;
+                }
+                storage += damage;
+            }
+            elapsed += time + cooldown;
+            cleared++;
+            kills += count;
+            last = w;
+        }
+
+        long creditedSeconds = (long)credited;
+        long gp = tower.currencyOver(Math.round(creditedSeconds / (double)GameWorld.STEP)) + (long)(kills * GP_PER_KILL);
+        float damage = (float)(storage - tower.getStorageTotal());
+        return new OfflineProgress(creditedSeconds, cleared, last + 1, kills, gp, damage);
+    }
+
+    // Average flow-field path length from where viruses spawn to the tower.
+    private static double pathLength(GameWorld world) {
+        FlowField field = world.getFlowField();
+        TerrainMap terrain = field.getTerrain();
+        double total = 0;
+        int paths = 0;
+        for (int row = 0; row < terrain.getRows(); row++) {
+            float distance = field.getDistance(field.cellAt(Virus.SIZE / 2f, terrain.getCellY(terrain.cell(0, row))));
+            if (Float.isInfinite(distance)) continue;
+            total += distance;
+            paths++;
+        }
+        return paths == 0 ? 0 : total / paths * terrain.getCellWidth();
+    }
+
+    /**
+     * True if there is nothing to hand out.
+     */
+    public boolean isEmpty() {
+        return gp == 0 && wavesCleared == 0 && kills == 0 && storageDamage == 0;
+    }
+
+    /**
+     * Seconds of the absence that were credited.
+     */
+    public long getSeconds() {
+        return seconds;
+    }
+
+    public int getWavesCleared() {
+        return wavesCleared;
+    }
+
+    /**
+     * The wave the game continues with, after its cooldown. Unchanged if no wave was cleared.
+     */
+    public int getNextWave() {
+        return nextWave;
+    }
+
+    public long getKills() {
+        return kills;
+    }
+
+    public long getGp() {
+        return gp;
+    }
+
+    /**
+     * Storage the main tower lost to viruses while away.
+     */
+    public float getStorageDamage() {
+        return storageDamage;
+    }
+}
@@ -0,0 +1,163 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Optional multi-core update phase for {@link GameWorld}.
+ * <p>
+ * Virus movement, virus attack timers and projectile flight only read shared tower
+ * coordinates and write their own entity's state, so they are split into contiguous chunks
+ * and run on a ForkJoinPool. Anything with shared side effects is merged back on the calling
+ * thread in slot order: tower storage hits here, and kills, GP drops and damage indicators in
+ * GameWorld's sequential passes. Every float operation therefore happens in the same order as
+ * in sequential mode, and the results are bit-identical.
+ * <p>
+ * Each phase runs on the calling thread as before while it has fewer than
+ * {@link #MIN_PARALLEL_SIZE} entities, so early waves pay nothing for it and the game can leave
+ * it on. Tasks and hit buffers are preallocated and reinitialized every tick, so a parallel tick
+ * allocates nothing.
+ */
+public class ParallelUpdater {
+    // Below this many entities the fork/join overhead isn't worth it.
+    static final int MIN_PARALLEL_SIZE = 2048;
+
+    private static final int MOVE = 0;
+    private static final int ATTACK = 1;
+    private static final int PROJECTILES = 2;
+
+    private final ForkJoinPool pool;
+    private final Chunk[] chunks;
+    private final Root root = new Root();
+
+    // Per-phase inputs, set before each invoke.
+    private int phase;
+    private float delta, targetX, targetY;
+    private VirusStore store;
+    private EntityArray<Projectile> projectiles;
+    private Tower main;
+    private TowerIndex relays;
+
+    public ParallelUpdater() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelUpdater(ForkJoinPool pool) {
+        this.pool = pool;
+        chunks = new Chunk[Math.max(1, pool.getParallelism() * 4)];
+        for (int i = 0; i < chunks.length; i++) chunks[i] = new Chunk();
+    }
+
+    /**
+     * Parallel equivalent of {@link VirusStore#updateAll}.
+     */
+    public void moveViruses(VirusStore store, float delta, float targetX, float targetY) {
+        if (store.size < MIN_PARALLEL_SIZE) {
+            store.updateAll(delta, targetX, targetY);
+            return;
+        }
+        this.store = store;
+        this.delta = delta;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        run(MOVE, store.size);
+    }
+
+    /**
+     * Parallel equivalent of {@link VirusStore#attackAll}. Hits are applied in slot order.
+     */
+    public void attackTowers(VirusStore store, float delta, Tower main, TowerIndex relays) {
+        if (store.size < MIN_PARALLEL_SIZE) {
+            store.attackAll(delta, main, relays);
+            return;
+        }
+        this.store = store;
+        this.delta = delta;
+        this.main = main;
+        this.relays = relays;
+        int used = run(ATTACK, store.size);
+        for (int c = 0; c < used; c++) {
+            IntArray hits = chunks[c].hits;
+            for (int i = 0; i < hits.size; i++) {
+                int v = hits.items[i];
+                store.target(v, main, relays).addStorageDamage(store.damage[v]);
+            }
+        }
+        this.main = null;
+        this.relays = null;
+    }
+
+    /**
+     * Move every projectile and flag collisions. Applying the hits is left to the caller.
+     */
+    public void updateProjectiles(EntityArray<Projectile> projectiles, float delta) {
+        if (projectiles.size() < MIN_PARALLEL_SIZE) {
+            for (int i = 0; i < projectiles.size(); i++) projectiles.get(i).update(delta);
+            return;
+        }
+        this.projectiles = projectiles;
+        this.delta = delta;
+        run(PROJECTILES, projectiles.size());
+    }
+
+    // Split [0, count) into contiguous chunks and run them. Returns the number of chunks used.
+    private int run(int phase, int count) {
+        this.phase = phase;
+        int used = Math.min(chunks.length, count);
+        int per = count / used, extra = count % used, from = 0;
+        for (int c = 0; c < used; c++) {
+            int to = from + per + (c < extra ? 1 : 0);
+            chunks[c].from = from;
+            chunks[c].to = to;
+            chunks[c].reinitialize();
+            from = to;
+        }
+        root.used = used;
+        root.reinitialize();
+        pool.invoke(root);
+        store = null;
+        projectiles = null;
+        return used;
+    }
+
+    private class Root extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        int used;
+
+        @Override
+        protected void compute() {
+            // Fork all but the first chunk, run that one here, then join in order.
+            for (int c = 1; c < used; c++) chunks[c].fork();
+            chunks[0].compute();
+            for (int c = 1; c < used; c++) chunks[c].join();
+        }
+    }
+
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        int from, to;
+        final IntArray hits = new IntArray();
+
+        @Override
+        protected void compute() {
+            switch (phase) {
+                case MOVE:
+                    store.updateRange(from, to, delta, targetX, targetY);
+                    break;
+                case ATTACK:
+                    hits.clear();
+                    for (int i = from; i < to; i++) {
+                        if (store.strike(i, delta, main, relays)) hits.add(i);
+                    }
+                    break;
+                case PROJECTILES:
+                    for (int i = from; i < to; i++) projectiles.get(i).update(delta);
+                    break;
+            }
+        }
+    }
+}
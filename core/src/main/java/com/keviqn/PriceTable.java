@@ -0,0 +1,81 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+/**
+ * Upgrade prices by level, shared by every upgrade. Level 1 costs {@link #BASE_PRICE} and each
+ * level after that costs {@code round(previous * GROWTH)}. The sequence is computed once, up to
+ * the point where it stops changing (a rounding fixed point, or int saturation); past that the
+ * price is constant. Running totals turn the cost of any block of levels into a subtraction and
+ * "how many can I afford" into a binary search.
+ */
+public final class PriceTable {
+    public static final int BASE_PRICE = 1;
+    public static final float GROWTH = 1.3f;
+
+    // PRICES[i] is the price of the upgrade from level i + 1 to level i + 2.
+    private static final int[] PRICES;
+    // TOTALS[n] is the cost of the first n upgrades, so TOTALS[0] == 0.
+    private static final long[] TOTALS;
+
+    static {
+        IntArray prices = new IntArray();
+        LongArray totals = new LongArray();
+        totals.add(0);
+        int price = BASE_PRICE;
+        while (true) {
+            prices.add(price);
+            totals.add(totals.peek() + price);
+            int next = MathUtils.round(price * GROWTH);
+            if (next <= price) break;
+            price = next;
+        }
+        PRICES = prices.toArray();
+        TOTALS = totals.toArray();
+    }
+
+    private PriceTable() {
+    }
+
+    /**
+     * Price of the next upgrade for something at the given level.
+     */
+    public static int price(int level) {
+        int i = level - 1;
+        return i < PRICES.length ? PRICES[i] : PRICES[PRICES.length - 1];
+    }
+
+    /**
+     * Cost of the first n upgrades, starting from level 1.
+     */
+    static long total(long n) {
+        int last = PRICES.length;
+        if (n <= last) return TOTALS[(int)n];
+        return TOTALS[last] + (n - last) * PRICES[last - 1];
+    }
+
+    /**
+     * Cost of buying count levels starting at the given level.
+     */
+    public static long cost(int level, int count) {
+        return total((long)level - 1 + count) - total(level - 1);
+    }
+
+    /**
+     * The most levels, up to limit, that the given balance buys starting at the given level.
+     */
+    public static int affordable(int level, long balance, int limit) {
+        limit = Math.min(limit, Integer.MAX_VALUE - level);
+        long start = level - 1;
+        long budget = total(start) + balance;
+        int lo = 0, hi = limit;
+        while (lo < hi) {
+            int mid = (int)(((long)lo + hi + 1) >>> 1);
+            if (total(start + mid) <= budget) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+}
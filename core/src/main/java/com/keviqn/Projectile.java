@@ -1,37 +1,148 @@
 package com.keviqn;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A shot at one virus. It steers by its {@link Guidance}, hits when its path this tick passes
+ * within {@link #HIT_RADIUS} of the target's path, and expires when the target is gone, its
+ * flight time runs out or it leaves the world. So the number in flight never exceeds fire rate
+ * times flight time.
+ */
+public class Projectile implements Pool.Poolable {
+    public static final float SPEED = 600; // pixels per second
+    public static final float HIT_RADIUS = 20;
+    // Flight time allowance as a multiple of the time needed to cross the tower's range.
+    private static final float LIFETIME_FACTOR = 2;
 
-public class Projectile {
     private float x, y;
     private float width = 150, height = 150;
     private Virus target;
+    private int targetGeneration;
     private float damage;
-    private Texture texture;
-    private float speed = 600; // pixels per second
+    private Guidance guidance = Guidance.HOMING;
+    private float lifetime;
     private boolean collided = false;
-    private Vector2 direction;
+    private boolean expired = false;
+    private final Vector2 direction = new Vector2();
+
+    /**
+     * Fire a homing projectile from (startX, startY) with a flight time of one second.
+     */
+    public void init(float startX, float startY, Virus target, float damage) {
+        init(startX, startY, target, damage, Guidance.HOMING, SPEED / LIFETIME_FACTOR);
+    }
 
-    public Projectile(float startX, float startY, Virus target, float damage, Texture texture) {
+    /**
+     * Fire a pooled projectile from (startX, startY). The range it was fired within sets how
+     * long it may fly.
+     */
+    public void init(float startX, float startY, Virus target, float damage, Guidance guidance, float range) {
         this.x = startX - width / 2f;
         this.y = startY - height / 2f;
         this.target = target;
+        targetGeneration = target.getGeneration();
         this.damage = damage;
-        this.texture = texture;
-        direction = new Vector2(target.getCenterX() - startX, target.getCenterY() - startY).nor();
+        this.guidance = guidance;
+        lifetime = range * LIFETIME_FACTOR / SPEED;
+        collided = false;
+        expired = false;
+        if (guidance == Guidance.LEAD) aimAhead(startX, startY);
+        else aimAt(startX, startY, target.getCenterX(), target.getCenterY());
+    }
+
+    private void aimAt(float fromX, float fromY, float toX, float toY) {
+        direction.set(toX - fromX, toY - fromY).nor();
+    }
+
+    // Aim at the intercept point: the earliest t with |d + v t| = SPEED t, where d is the
+    // target's offset and v its velocity. Falls back to its current position if there is none.
+    private void aimAhead(float fromX, float fromY) {
+        float dx = target.getCenterX() - fromX, dy = target.getCenterY() - fromY;
+        float vx = target.getVelocityX(), vy = target.getVelocityY();
+        float a = vx * vx + vy * vy - SPEED * SPEED;
+        float b = 2 * (dx * vx + dy * vy);
+        float c = dx * dx + dy * dy;
+        float t = -1;
+        if (Math.abs(a) < 1e-6f) {
+            if (b < 0) t = -c / b;
+        } else {
+            float discriminant = b * b - 4 * a * c;
+            if (discriminant >= 0) {
+                float root = (float)Math.sqrt(discriminant);
+                float t1 = (-b - root) / (2 * a), t2 = (-b + root) / (2 * a);
+                t = Math.min(t1, t2) > 0 ? Math.min(t1, t2) : Math.max(t1, t2);
+            }
+        }
+        if (t > 0) aimAt(fromX, fromY, target.getCenterX() + vx * t, target.getCenterY() + vy * t);
+        else aimAt(fromX, fromY, target.getCenterX(), target.getCenterY());
+    }
+
+    @Override
+    public void reset() {
+        x = 0;
+        y = 0;
+        target = null;
+        damage = 0;
+        guidance = Guidance.HOMING;
+        lifetime = 0;
+        collided = false;
+        expired = false;
+        direction.setZero();
     }
 
     public void update(float delta) {
-        x += direction.x * speed * delta;
-        y += direction.y * speed * delta;
-        float dist = Vector2.dst(x + width / 2f, y + height / 2f, target.getCenterX(), target.getCenterY());
-        if (dist < 20) {
+        if (collided || expired) return;
+        if (!hasValidTarget()) {
+            expired = true;
+            return;
+        }
+        float startX = x + width / 2f, startY = y + height / 2f;
+        float targetX = target.getCenterX(), targetY = target.getCenterY();
+        if (guidance == Guidance.HOMING) aimAt(startX, startY, targetX, targetY);
+        x += direction.x * SPEED * delta;
+        y += direction.y * SPEED * delta;
+        lifetime -= delta;
+
+        // Swept test in the target's frame, so neither a fast projectile nor a moving target can
+        // step through a hit between ticks. The target's centre a tick ago is backed out from
+        // its velocity.
+        float fromX = startX - (targetX - target.getVelocityX() * delta);
+        float fromY = startY - (targetY - target.getVelocityY() * delta);
+        float toX = x + width / 2f - targetX;
+        float toY = y + height / 2f - targetY;
+        if (segmentHitsOrigin(fromX, fromY, toX, toY, HIT_RADIUS)) {
             collided = true;
+        } else if (lifetime <= 0 || toX + targetX < 0 || toX + targetX > GameWorld.WORLD_WIDTH
+            || toY + targetY < 0 || toY + targetY > GameWorld.WORLD_HEIGHT) {
+            expired = true;
         }
     }
 
+    // True if the segment (x0, y0)-(x1, y1) passes within radius of the origin.
+    static boolean segmentHitsOrigin(float x0, float y0, float x1, float y1, float radius) {
+        float sx = x1 - x0, sy = y1 - y0;
+        float lengthSq = sx * sx + sy * sy;
+        float t = lengthSq > 0 ? -(x0 * sx + y0 * sy) / lengthSq : 0;
+        if (t < 0) t = 0;
+        else if (t > 1) t = 1;
+        float cx = x0 + sx * t, cy = y0 + sy * t;
+        return cx * cx + cy * cy <= radius * radius;
+    }
+
+    /**
+     * True once the projectile should be removed without hitting: target gone, out of flight
+     * time or out of the world.
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
     public boolean hasCollided() {
         return collided;
     }
@@ -44,7 +155,40 @@ public class Projectile {
         return target;
     }
 
-    public void render(SpriteBatch batch) {
-        batch.draw(texture, x, y, width, height);
+    /**
+     * False once the target has been removed from the world (its view recycled).
+     */
+    public boolean hasValidTarget() {
+        return target != null && target.getGeneration() == targetGeneration;
+    }
+
+    // Snapshot support. The target is written by the caller as a slot index.
+    void write(DataOutput out) throws IOException {
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeFloat(damage);
+        out.writeFloat(direction.x);
+        out.writeFloat(direction.y);
+        out.writeByte(guidance.ordinal());
+        out.writeFloat(lifetime);
+        out.writeBoolean(collided);
+        out.writeBoolean(expired);
+    }
+
+    void read(DataInput in, Virus target) throws IOException {
+        this.target = target;
+        targetGeneration = target.getGeneration();
+        x = in.readFloat();
+        y = in.readFloat();
+        damage = in.readFloat();
+        direction.set(in.readFloat(), in.readFloat());
+        guidance = Guidance.values()[in.readByte()];
+        lifetime = in.readFloat();
+        collided = in.readBoolean();
+        expired = in.readBoolean();
+    }
+
+    public void render(SpriteBatch batch, TextureRegion region) {
+        batch.draw(region, x, y, width, height);
     }
 }
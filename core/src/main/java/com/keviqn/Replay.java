@@ -0,0 +1,197 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A recorded game: the world seed and map plus every player action and the tick it was applied
+ * on. Since the simulation is deterministic, that is all it takes to re-run the game exactly.
+ * <p>
+ * File layout: magic, version, seed, map, action count, then one record per action. Each record is
+ * the tick delta since the previous action (varint) followed by the action code (varint, one
+ * byte for everything but bulk purchases). A 100-wave run is a few KB.
+ * <p>
+ * The format hasn't been released yet, so it stays at version 1 while it changes; the first
+ * release fixes it, and any change after that gets a new version.
+ */
+public class Replay {
+    private static final int MAGIC = 0x41544452; // "ATDR"
+    private static final int VERSION = 1;
+
+    // Action codes: upgrades are their ordinal, targeting and guidance changes are offset. For
+    // purchases the bits above the code hold the number of levels bought, minus one; for tower
+    // placements, the map cell; for offline progress, the seconds away.
+    private static final int TARGETING_BASE = 16;
+    private static final int GUIDANCE_BASE = 24;
+    private static final int PLACE_CODE = 26;
+    private static final int OFFLINE_CODE = 27;
+    private static final int CODE_MASK = 0x1F;
+    private static final int COUNT_SHIFT = 5;
+
+    /** Largest number of levels one purchase action can carry. */
+    public static final int MAX_PURCHASE_COUNT = 1 << 24;
+
+    private final long seed;
+    private final TerrainMap terrain;
+    private final LongArray ticks = new LongArray();
+    private final IntArray actions = new IntArray();
+
+    public Replay(long seed) {
+        this(seed, TerrainMap.open());
+    }
+
+    public Replay(long seed, TerrainMap terrain) {
+        this.seed = seed;
+        this.terrain = terrain.copy();
+    }
+
+    public static int purchaseAction(Upgrade upgrade) {
+        return upgrade.ordinal();
+    }
+
+    public static int purchaseAction(Upgrade upgrade, int count) {
+        if (count < 1 || count > MAX_PURCHASE_COUNT) throw new IllegalArgumentException("count: " + count);
+        return (count - 1) << COUNT_SHIFT | upgrade.ordinal();
+    }
+
+    public static int targetingAction(Targeting targeting) {
+        return TARGETING_BASE + targeting.ordinal();
+    }
+
+    public static int guidanceAction(Guidance guidance) {
+        return GUIDANCE_BASE + guidance.ordinal();
+    }
+
+    public static int placeAction(int cell) {
+        return cell << COUNT_SHIFT | PLACE_CODE;
+    }
+
+    public static int offlineAction(long seconds) {
+        if (seconds < 0 || seconds > OfflineProgress.MAX_SECONDS) throw new IllegalArgumentException("seconds: " + seconds);
+        return (int)seconds << COUNT_SHIFT | OFFLINE_CODE;
+    }
+
+    public static boolean isPurchase(int action) {
+        return (action & CODE_MASK) < TARGETING_BASE;
+    }
+
+    public static Upgrade upgradeOf(int action) {
+        return Upgrade.values()[action & CODE_MASK];
+    }
+
+    public static int countOf(int action) {
+        return (action >>> COUNT_SHIFT) + 1;
+    }
+
+    public static boolean isGuidance(int action) {
+        int code = action & CODE_MASK;
+        return code >= GUIDANCE_BASE && code < PLACE_CODE;
+    }
+
+    public static boolean isPlacement(int action) {
+        return (action & CODE_MASK) == PLACE_CODE;
+    }
+
+    public static int cellOf(int action) {
+        return action >>> COUNT_SHIFT;
+    }
+
+    public static boolean isOffline(int action) {
+        return (action & CODE_MASK) == OFFLINE_CODE;
+    }
+
+    public static long secondsOf(int action) {
+        return action >>> COUNT_SHIFT;
+    }
+
+    public static Targeting targetingOf(int action) {
+        return Targeting.values()[(action & CODE_MASK) - TARGETING_BASE];
+    }
+
+    public static Guidance guidanceOf(int action) {
+        return Guidance.values()[(action & CODE_MASK) - GUIDANCE_BASE];
+    }
+
+    public void record(long tick, int action) {
+        ticks.add(tick);
+        actions.add(action);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * The map the game started on.
+     */
+    public TerrainMap getTerrain() {
+        return terrain;
+    }
+
+    public int size() {
+        return actions.size;
+    }
+
+    public long getTick(int index) {
+        return ticks.get(index);
+    }
+
+    public int getAction(int index) {
+        return actions.get(index);
+    }
+
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        terrain.write(out);
+        writeVarLong(out, actions.size);
+        long last = 0;
+        for (int i = 0; i < actions.size; i++) {
+            writeVarLong(out, ticks.get(i) - last);
+            writeVarLong(out, actions.get(i));
+            last = ticks.get(i);
+        }
+        out.flush();
+    }
+
+    public static Replay read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) throw new IOException("Not a replay file");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+        long seed = in.readLong();
+        Replay replay = new Replay(seed, TerrainMap.read(in));
+        long count = readVarLong(in);
+        long tick = 0;
+        for (long i = 0; i < count; i++) {
+            tick += readVarLong(in);
+            replay.record(tick, (int)readVarLong(in));
+        }
+        return replay;
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
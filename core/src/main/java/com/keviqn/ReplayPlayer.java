@@ -0,0 +1,106 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.Array;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Re-simulates a {@link Replay} headlessly, as fast as the CPU allows.
+ * <p>
+ * While playing it keeps an in-memory keyframe (a full world snapshot) every N waves, so
+ * {@link #seek} only has to restore the nearest earlier keyframe and step forward from there.
+ */
+public class ReplayPlayer {
+    private static class Keyframe {
+        final long tick;
+        final int nextAction;
+        final byte[] state;
+
+        Keyframe(long tick, int nextAction, byte[] state) {
+            this.tick = tick;
+            this.nextAction = nextAction;
+            this.state = state;
+        }
+    }
+
+    private final Replay replay;
+    private final int keyframeWaves;
+    private final Array<Keyframe> keyframes = new Array<>();
+    private GameWorld world;
+    private int lastKeyframeWave;
+
+    public ReplayPlayer(Replay replay, int keyframeWaves) {
+        this.replay = replay;
+        this.keyframeWaves = Math.max(1, keyframeWaves);
+        restart();
+    }
+
+    private void restart() {
+        world = new GameWorld(replay.getSeed(), replay.getTerrain());
+        world.setPlayback(replay, 0);
+        lastKeyframeWave = world.getCurrentWave();
+    }
+
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    /**
+     * Run the next tick, along with any actions due before it. Returns false once the game is over.
+     */
+    public boolean step() {
+        if (world.isGameOver()) return false;
+        world.step();
+        int wave = world.getCurrentWave();
+        if (wave != lastKeyframeWave && wave % keyframeWaves == 0) {
+            lastKeyframeWave = wave;
+            captureKeyframe();
+        }
+        return !world.isGameOver();
+    }
+
+    /**
+     * Play until the game ends or the tick limit is reached.
+     */
+    public void playToEnd(long maxTicks) {
+        while (world.getTick() < maxTicks && step()) { }
+    }
+
+    /**
+     * Jump to the given tick: restore the closest keyframe at or before it, then step forward.
+     */
+    public void seek(long tick) {
+        Keyframe best = null;
+        for (Keyframe k : keyframes) {
+            if (k.tick <= tick && (best == null || k.tick > best.tick)) best = k;
+        }
+        if (best != null && (world.getTick() > tick || best.tick > world.getTick())) {
+            try {
+                world.readState(new DataInputStream(new ByteArrayInputStream(best.state)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt keyframe", e);
+            }
+            world.setPlayback(replay, best.nextAction);
+            lastKeyframeWave = world.getCurrentWave();
+        } else if (world.getTick() > tick) {
+            restart();
+        }
+        while (world.getTick() < tick && step()) { }
+    }
+
+    private void captureKeyframe() {
+        for (Keyframe k : keyframes) {
+            if (k.tick == world.getTick()) return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            world.writeState(new DataOutputStream(bytes));
+            keyframes.add(new Keyframe(world.getTick(), world.getPlaybackIndex(), bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not snapshot world", e);
+        }
+    }
+}
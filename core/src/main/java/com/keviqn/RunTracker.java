@@ -0,0 +1,73 @@
+package com.keviqn;
+
+/**
+ * Turns one game's events into {@link StatsStore} records: one per cleared wave and one when the
+ * run ends. Kills, GP earned and upgrades bought are read off the world at wave boundaries, so
+ * a game continued from a save still reports its full totals. The one figure the world doesn't
+ * keep, the most projectiles in flight, is sampled once per frame via {@link #sample()}.
+ */
+public class RunTracker {
+    private final GameWorld world;
+    private final StatsStore store;
+
+    // World totals when the current wave started.
+    private long waveStartTick;
+    private int waveStartKills;
+    private long waveStartGp;
+    private long waveStartUpgrades;
+
+    private int waveMaxProjectiles;
+    private int runMaxProjectiles;
+
+    public RunTracker(GameWorld world, StatsStore store) {
+        this.world = world;
+        this.store = store;
+        markWaveStart();
+        EventBus events = world.getEvents();
+        events.subscribe(GameEvent.Type.WAVE_SPAWNED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                markWaveStart();
+            }
+        });
+        // Waves cleared while away aren't timed; start counting afresh from the next one.
+        events.subscribe(GameEvent.Type.OFFLINE_PROGRESS, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                markWaveStart();
+            }
+        });
+        events.subscribe(GameEvent.Type.WAVE_CLEARED, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                store.recordWave(world.getCurrentWave(), world.getTick() - waveStartTick,
+                    world.getEnemiesKilled() - waveStartKills, world.getTotalGpEarned() - waveStartGp,
+                    world.getTower().getUpgradesBought() - waveStartUpgrades, waveMaxProjectiles);
+            }
+        });
+        events.subscribe(GameEvent.Type.GAME_OVER, new EventBus.Listener() {
+            @Override
+            public void onEvent(GameEvent event) {
+                store.recordRun(world.getCurrentWave(), world.getTick(), world.getEnemiesKilled(),
+                    world.getTotalGpEarned(), world.getTower().getUpgradesBought(), runMaxProjectiles);
+            }
+        });
+    }
+
+    /**
+     * Note how many projectiles are in flight. Call once per frame after updating the world.
+     */
+    public void sample() {
+        int projectiles = world.getProjectiles().size();
+        if (projectiles > waveMaxProjectiles) waveMaxProjectiles = projectiles;
+        if (projectiles > runMaxProjectiles) runMaxProjectiles = projectiles;
+    }
+
+    private void markWaveStart() {
+        waveStartTick = world.getTick();
+        waveStartKills = world.getEnemiesKilled();
+        waveStartGp = world.getTotalGpEarned();
+        waveStartUpgrades = world.getTower().getUpgradesBought();
+        waveMaxProjectiles = 0;
+    }
+}
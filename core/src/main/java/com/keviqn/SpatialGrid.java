@@ -0,0 +1,109 @@
+package com.keviqn;
+
+/**
+ * Uniform-grid spatial index over the playfield, keyed on virus centres.
+ * Each cell is an intrusive doubly linked list threaded through the viruses themselves,
+ * so inserting, moving and removing a virus are O(1) and never allocate.
+ */
+public class SpatialGrid {
+    private final float cellSize;
+    private final int columns, rows;
+    private final Virus[] heads;
+
+    public SpatialGrid(float width, float height, float cellSize) {
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int)Math.ceil(width / cellSize));
+        rows = Math.max(1, (int)Math.ceil(height / cellSize));
+        heads = new Virus[columns * rows];
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Column of the cell containing x, clamped to the grid.
+     */
+    public int column(float x) {
+        int c = (int)(x / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    /**
+     * Row of the cell containing y, clamped to the grid.
+     */
+    public int row(float y) {
+        int r = (int)(y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    private int cellOf(Virus virus) {
+        return row(virus.getCenterY()) * columns + column(virus.getCenterX());
+    }
+
+    /**
+     * First virus in a cell (row * columns + column); follow {@code gridNext} for the rest.
+     */
+    Virus first(int cell) {
+        return heads[cell];
+    }
+
+    public void insert(Virus virus) {
+        if (virus.gridCell >= 0) return;
+        link(virus, cellOf(virus));
+    }
+
+    public void remove(Virus virus) {
+        if (virus.gridCell < 0) return;
+        unlink(virus);
+    }
+
+    /**
+     * Re-bucket a virus after it moved. Cheap when it stayed in the same cell.
+     */
+    public void update(Virus virus) {
+        if (virus.gridCell < 0) return;
+        int cell = cellOf(virus);
+        if (cell == virus.gridCell) return;
+        unlink(virus);
+        link(virus, cell);
+    }
+
+    public void clear() {
+        for (int i = 0; i < heads.length; i++) {
+            Virus v = heads[i];
+            while (v != null) {
+                Virus next = v.gridNext;
+                v.gridCell = -1;
+                v.gridPrev = v.gridNext = null;
+                v = next;
+            }
+            heads[i] = null;
+        }
+    }
+
+    private void link(Virus virus, int cell) {
+        Virus head = heads[cell];
+        virus.gridCell = cell;
+        virus.gridPrev = null;
+        virus.gridNext = head;
+        if (head != null) head.gridPrev = virus;
+        heads[cell] = virus;
+    }
+
+    private void unlink(Virus virus) {
+        if (virus.gridPrev != null) virus.gridPrev.gridNext = virus.gridNext;
+        else heads[virus.gridCell] = virus.gridNext;
+        if (virus.gridNext != null) virus.gridNext.gridPrev = virus.gridPrev;
+        virus.gridCell = -1;
+        virus.gridPrev = virus.gridNext = null;
+    }
+}
@@ -0,0 +1,93 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+/**
+ * How a wave's viruses are released over time, and where along the left edge they enter.
+ * Every pattern lets out a whole wave within {@link #spreadTime(int)} of its start.
+ */
+public enum SpawnPattern {
+    // A steady stream at an even rate.
+    TRICKLE("Trickle") {
+        @Override
+        public int scheduled(float elapsed, int total) {
+            return Math.min(total, 1 + (int)(elapsed * total / spreadTime(total)));
+        }
+    },
+    // A few large packs, evenly spaced.
+    BURST("Burst") {
+        @Override
+        public int scheduled(float elapsed, int total) {
+            int size = (total + BURSTS - 1) / BURSTS;
+            return Math.min(total, (1 + (int)(elapsed * BURSTS / spreadTime(total))) * size);
+        }
+    },
+    // Small groups entering each lane in turn, so the field fills one band at a time.
+    LANES("Lanes") {
+        @Override
+        public int scheduled(float elapsed, int total) {
+            int size = groupSize(total);
+            int groups = (total + size - 1) / size;
+            return Math.min(total, (1 + (int)(elapsed * groups / spreadTime(total))) * size);
+        }
+
+        @Override
+        public float rollY(int index, int total, RandomXS128 random) {
+            float band = SPAWN_HEIGHT / LANE_COUNT;
+            int lane = (index / groupSize(total)) % LANE_COUNT;
+            return lane * band + random.nextFloat() * band;
+        }
+    };
+
+    // Time each virus adds to a wave's release, up to the cap.
+    private static final float SECONDS_PER_VIRUS = 0.1f;
+    private static final float MAX_SPREAD = 12f;
+    private static final int BURSTS = 4;
+    private static final int LANE_COUNT = 4;
+    // Groups per lane over a wave.
+    private static final int LANE_GROUPS = 4;
+    // Height of the strip viruses enter along; virus size assumed 60.
+    private static final float SPAWN_HEIGHT = GameWorld.WORLD_HEIGHT - 60;
+
+    private final String label;
+
+    SpawnPattern(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * How many of a wave of total viruses should be out once elapsed seconds have passed.
+     * Always at least one, so a wave starts the tick it begins.
+     */
+    public abstract int scheduled(float elapsed, int total);
+
+    /**
+     * Spawn height for the index-th virus of the wave.
+     */
+    public float rollY(int index, int total, RandomXS128 random) {
+        return random.nextFloat() * SPAWN_HEIGHT;
+    }
+
+    /**
+     * Seconds over which a wave of total viruses is let out.
+     */
+    public static float spreadTime(int total) {
+        return Math.min(MAX_SPREAD, total * SECONDS_PER_VIRUS);
+    }
+
+    /**
+     * Pattern used by the given wave. Waves cycle through them in order.
+     */
+    public static SpawnPattern forWave(int wave) {
+        SpawnPattern[] all = values();
+        return all[(wave - 1) % all.length];
+    }
+
+    private static int groupSize(int total) {
+        return Math.max(1, total / (LANE_COUNT * LANE_GROUPS));
+    }
+}
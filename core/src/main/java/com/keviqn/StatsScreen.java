@@ -0,0 +1,118 @@
+package com.keviqn;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
+import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
+import com.badlogic.gdx.utils.viewport.ScreenViewport;
+
+/**
+ * Lifetime statistics. Everything shown comes straight from the store's rollups.
+ */
+public class StatsScreen implements Screen {
+
+    private Stage stage;
+    private Skin skin;
+    private Main game;
+    private Table statsTable;
+
+    public StatsScreen(final Main game) {
+        this.game = game;
+
+        stage = new Stage(new ScreenViewport());
+        Gdx.input.setInputProcessor(stage);
+        skin = game.getAssets().getSkin();
+
+        Table rootTable = new Table();
+        rootTable.setFillParent(true);
+        rootTable.top().pad(40);
+        stage.addActor(rootTable);
+
+        Label titleLabel = new Label("Stats", skin);
+        titleLabel.setFontScale(5.5f);
+
+        statsTable = new Table();
+        LifetimeStats stats = game.getStats().getStats();
+        addRow("Runs", String.valueOf(stats.getRuns()));
+        addRow("Best wave", String.valueOf(stats.getBestWave()));
+        addRow("Average wave", String.format("%.1f", stats.getAverageWave()));
+        addRow("Wave p50 / p90 / p99", stats.getWavePercentile(0.5f) + " / " + stats.getWavePercentile(0.9f)
+            + " / " + stats.getWavePercentile(0.99f));
+        addRow("Enemies killed", stats.getTotalKills() + " (" + String.format("%.1f", stats.getAverageKills()) + " per run)");
+        addRow("GP earned", stats.getTotalGp() + " (" + String.format("%.1f", stats.getAverageGp()) + " per run)");
+        addRow("Upgrades bought", String.valueOf(stats.getTotalUpgrades()));
+        addRow("Waves cleared", String.valueOf(stats.getWavesCleared()));
+        addRow("Wave clear time", String.format("%.1fs average, %.1fs fastest", stats.getAverageWaveTime(), stats.getFastestWaveTime()));
+        addRow("Most projectiles in flight", String.valueOf(stats.getMaxProjectiles()));
+        addRow("Time played", formatTime(stats.getPlayTime()));
+
+        TextButton backButton = new TextButton("Back", skin);
+        backButton.getLabel().setFontScale(5);
+        backButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                game.setScreen(new MainMenuScreen(game));
+                Gdx.app.postRunnable(StatsScreen.this::dispose);
+            }
+        });
+
+        rootTable.add(titleLabel).padBottom(30);
+        rootTable.row();
+        rootTable.add(statsTable).expand().top();
+        rootTable.row();
+        rootTable.add(backButton).width(600).height(160);
+    }
+
+    private void addRow(String name, String value) {
+        Label nameLabel = new Label(name, skin);
+        nameLabel.setFontScale(3);
+        Label valueLabel = new Label(value, skin);
+        valueLabel.setFontScale(3);
+        statsTable.add(nameLabel).left().padRight(60);
+        statsTable.add(valueLabel).left();
+        statsTable.row().padTop(10);
+    }
+
+    private static String formatTime(float seconds) {
+        int total = (int)seconds;
+        return String.format("%d:%02d:%02d", total / 3600, total / 60 % 60, total % 60);
+    }
+
+    @Override
+    public void show() {
+        Gdx.input.setInputProcessor(stage);
+    }
+
+    @Override
+    public void render(float delta) {
+        Gdx.gl.glClearColor(0.1f, 0.1f, 0.1f, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        stage.act(delta);
+        stage.draw();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        stage.getViewport().update(width, height, true);
+    }
+
+    @Override
+    public void pause() { }
+
+    @Override
+    public void resume() { }
+
+    @Override
+    public void hide() { }
+
+    @Override
+    public void dispose() {
+        stage.dispose();
+    }
+}
@@ -0,0 +1,267 @@
+package com.keviqn;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lifetime statistics, kept as an append-only log plus a rollup file.
+ * <p>
+ * Every finished wave and run appends one record to {@code runs.log}: a type byte and seven
+ * varints (wave, duration in ticks, kills, GP, upgrades bought, most projectiles in flight,
+ * and a timestamp), typically a dozen bytes. The {@link LifetimeStats} rollups are updated
+ * in memory at the same time and rewritten to {@code rollups.bin}, together with how much of
+ * the log they cover. Opening the store reads the rollups and folds in only the part of the
+ * log they don't cover yet, which after a clean shutdown is nothing.
+ * <p>
+ * Recording a wave or run only encodes the record into memory, since it happens in the middle
+ * of a tick. {@link #flush()}, called once per frame, hands whatever has queued up to a
+ * background thread that appends it to the log and then rewrites the rollups, the same way
+ * {@link Autosaver} writes saves. The log is only replayed
+ * from the start when the rollups can't be read; if it has lost records the rollups cover, the
+ * rollups are kept and the log starts over.
+ */
+public class StatsStore implements Disposable {
+    private static final int LOG_MAGIC = 0x4154444C; // "ATDL"
+    private static final int ROLLUP_MAGIC = 0x41544454; // "ATDT"
+    private static final int VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 5;
+
+    static final byte RUN = 1;
+    static final byte WAVE = 2;
+
+    private final FileHandle log;
+    private final FileHandle rollups;
+    private final LifetimeStats stats = new LifetimeStats();
+    // Bytes of the log folded into the stats, counting records queued but not yet written.
+    private long covered;
+    // Whether the log has its header, on disk or queued.
+    private boolean logStarted;
+
+    // Records waiting for the next flush.
+    private final ByteArrayOutputStream queued = new ByteArrayOutputStream(64);
+    private final DataOutputStream queuedOut = new DataOutputStream(queued);
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(64);
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "StatsStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The last write handed to the writer thread, if any. Only touched from the render thread.
+    private Future<?> pending;
+
+    public StatsStore(FileHandle directory) {
+        log = directory.child("runs.log");
+        rollups = directory.child("rollups.bin");
+        open();
+    }
+
+    public LifetimeStats getStats() {
+        return stats;
+    }
+
+    public void recordWave(int wave, long ticks, int kills, long gp, long upgrades, int maxProjectiles) {
+        queue(WAVE, wave, ticks, kills, gp, upgrades, maxProjectiles);
+        stats.addWave(ticks, maxProjectiles);
+    }
+
+    public void recordRun(int wave, long ticks, int kills, long gp, long upgrades, int maxProjectiles) {
+        queue(RUN, wave, ticks, kills, gp, upgrades, maxProjectiles);
+        stats.addRun(wave, ticks, kills, gp, upgrades, maxProjectiles);
+    }
+
+    private void queue(byte type, int wave, long ticks, int kills, long gp, long upgrades, int maxProjectiles) {
+        int start = queued.size();
+        try {
+            if (!logStarted) {
+                queuedOut.writeInt(LOG_MAGIC);
+                queuedOut.writeByte(VERSION);
+                logStarted = true;
+            }
+            queuedOut.writeByte(type);
+            Replay.writeVarLong(queuedOut, wave);
+            Replay.writeVarLong(queuedOut, ticks);
+            Replay.writeVarLong(queuedOut, kills);
+            Replay.writeVarLong(queuedOut, gp);
+            Replay.writeVarLong(queuedOut, upgrades);
+            Replay.writeVarLong(queuedOut, maxProjectiles);
+            Replay.writeVarLong(queuedOut, System.currentTimeMillis() / 1000);
+        } catch (IOException e) {
+            // Writing to memory doesn't fail.
+            throw new IllegalStateException(e);
+        }
+        covered += queued.size() - start;
+    }
+
+    /**
+     * Write the records queued since the last flush, and the rollups, in the background. Cheap
+     * when nothing has been recorded. Call once per frame, outside the world update.
+     */
+    public void flush() {
+        if (queued.size() == 0) return;
+        final byte[] records = queued.toByteArray();
+        queued.reset();
+        final byte[] rollupBytes = encodeRollups();
+        pending = writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    log.writeBytes(records, true);
+                } catch (GdxRuntimeException e) {
+                    Gdx.app.error("StatsStore", "Could not append to " + log.path(), e);
+                }
+                writeRollups(rollupBytes);
+            }
+        });
+    }
+
+    /**
+     * Flush and wait until everything is on disk. For when the app may not get another chance,
+     * like {@code pause()} on Android.
+     */
+    public void flushNow() {
+        flush();
+        finish();
+    }
+
+    // Block until the write in progress, if any, has completed.
+    private void finish() {
+        if (pending == null) return;
+        try {
+            pending.get();
+        } catch (Exception e) {
+            Gdx.app.error("StatsStore", "Stats write did not complete", e);
+        }
+        pending = null;
+    }
+
+    private void open() {
+        if (rollups.exists()) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(rollups.readBytes()));
+                if (in.readInt() != ROLLUP_MAGIC || in.readUnsignedByte() != VERSION) throw new IOException("Unknown rollup file");
+                covered = in.readLong();
+                stats.read(in);
+            } catch (IOException | GdxRuntimeException e) {
+                Gdx.app.error("StatsStore", "Rebuilding rollups from the log", e);
+                reset();
+            }
+        }
+        long length = log.exists() ? log.length() : 0;
+        if (length < covered) {
+            // The log lost records the rollups already hold. Keep the rollups and start the
+            // log over rather than counting whatever is left of it a second time.
+            Gdx.app.error("StatsStore", "Starting a new " + log.path() + ", it is shorter than the rollups cover");
+            log.delete();
+            covered = 0;
+            writeRollups(encodeRollups());
+        } else if (length > covered) {
+            catchUp();
+        }
+        logStarted = covered > 0;
+    }
+
+    private void reset() {
+        covered = 0;
+        stats.clear();
+    }
+
+    // Fold in log records the rollups don't cover yet. A record cut short by a crash is dropped.
+    private void catchUp() {
+        byte[] bytes;
+        try {
+            bytes = log.readBytes();
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error("StatsStore", "Could not read " + log.path(), e);
+            return;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long position = covered;
+        try {
+            if (position == 0) {
+                if (in.readInt() != LOG_MAGIC || in.readUnsignedByte() != VERSION) {
+                    Gdx.app.error("StatsStore", "Starting over from unrecognised " + log.path());
+                    truncateLog(0);
+                    return;
+                }
+                position = LOG_HEADER_SIZE;
+            } else {
+                in.skipBytes((int)position);
+            }
+            while (position < bytes.length) {
+                byte type = in.readByte();
+                int wave = (int)Replay.readVarLong(in);
+                long ticks = Replay.readVarLong(in);
+                int kills = (int)Replay.readVarLong(in);
+                long gp = Replay.readVarLong(in);
+                long upgrades = Replay.readVarLong(in);
+                int maxProjectiles = (int)Replay.readVarLong(in);
+                Replay.readVarLong(in); // timestamp
+                if (type == RUN) stats.addRun(wave, ticks, kills, gp, upgrades, maxProjectiles);
+                else if (type == WAVE) stats.addWave(ticks, maxProjectiles);
+                position = bytes.length - in.available();
+            }
+        } catch (EOFException e) {
+            truncateLog(position);
+        } catch (IOException e) {
+            Gdx.app.error("StatsStore", "Stopped reading " + log.path() + " at byte " + position, e);
+            truncateLog(position);
+        }
+        covered = position;
+        writeRollups(encodeRollups());
+    }
+
+    private void truncateLog(long length) {
+        try (RandomAccessFile file = new RandomAccessFile(log.file(), "rw")) {
+            file.setLength(length);
+        } catch (IOException e) {
+            Gdx.app.error("StatsStore", "Could not truncate " + log.path(), e);
+        }
+    }
+
+    private byte[] encodeRollups() {
+        try {
+            scratch.reset();
+            scratchOut.writeInt(ROLLUP_MAGIC);
+            scratchOut.writeByte(VERSION);
+            scratchOut.writeLong(covered);
+            stats.write(scratchOut);
+            return scratch.toByteArray();
+        } catch (IOException e) {
+            // Writing to memory doesn't fail.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The rollup file is tiny; write it whole and rename it into place.
+    private void writeRollups(byte[] bytes) {
+        try {
+            FileHandle temp = rollups.sibling(rollups.name() + ".tmp");
+            temp.writeBytes(bytes, false);
+            if (!temp.file().renameTo(rollups.file())) {
+                rollups.delete();
+                if (!temp.file().renameTo(rollups.file())) throw new IOException("Could not replace " + rollups.path());
+            }
+        } catch (IOException | GdxRuntimeException e) {
+            Gdx.app.error("StatsStore", "Could not save " + rollups.path(), e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        flushNow();
+        writer.shutdown();
+    }
+}
@@ -0,0 +1,272 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import java.util.Arrays;
+
+/**
+ * Hands out every tower's shots for a tick in one go.
+ * <p>
+ * Towers with shots ready are first spread over the {@link SpatialGrid} cells their range
+ * touches. Each cell keeps only the {@link #MAX_TOWERS_PER_CELL} ready towers nearest to it, so
+ * however far upgrades stretch the range, a cell never fans out to more towers than that. Each
+ * touched cell's viruses are then walked once, and every virus that still needs damage becomes
+ * a candidate for each of the cell's towers that has it in range. The work is one visit per
+ * virus near a ready tower, a bounded number of range checks each, and one pass per tower over
+ * the grid, rather than a search per tower per shot.
+ * <p>
+ * Each candidate is scored once, by the tower's targeting strategy. Shots are then given out
+ * round-robin across towers, each taking its best-scored candidate: a tower with one shot left
+ * picks it in a single pass, one with more turns its candidates into a heap first. A shot
+ * adds pending damage to its target; a target that still needs more goes back on the heap with
+ * a fresh score, and candidates that shots in flight will already kill are dropped as they come
+ * up. So towers sharing a field spread their fire instead of all piling onto one virus. Nothing
+ * here allocates once the buffers have grown to the largest tick seen.
+ */
+public class TargetScheduler {
+    // Most ready towers a grid cell hands its viruses to; the nearest ones win.
+    static final int MAX_TOWERS_PER_CELL = 8;
+
+    private final SpatialGrid grid;
+
+    // Towers with shots this tick, and how many each has left.
+    private Tower[] ready = new Tower[4];
+    private int[] shots = new int[4];
+    // Per ready tower, its scored candidates; a min-heap by score, then spawn id, once heaped.
+    private Virus[][] candidates = new Virus[4][];
+    private float[][] scores = new float[4][];
+    private int[] candidateCounts = new int[4];
+    private boolean[] heaped = new boolean[4];
+
+    // Per grid cell, the nearest ready towers covering it, sorted by distance.
+    private final int[] coverTowers;
+    private final float[] coverDistances;
+    private final int[] coverCounts;
+    private int[] touchedCells = new int[64];
+    private int touchedCount;
+
+    public TargetScheduler(SpatialGrid grid) {
+        this.grid = grid;
+        int cells = grid.getColumns() * grid.getRows();
+        coverTowers = new int[cells * MAX_TOWERS_PER_CELL];
+        coverDistances = new float[cells * MAX_TOWERS_PER_CELL];
+        coverCounts = new int[cells];
+    }
+
+    /**
+     * Advance every tower's cooldown by delta and fire the shots that earns. Projectiles come
+     * from the pool and are appended to out. Returns the number fired.
+     */
+    public int assign(Array<Tower> towers, float delta, Pool<Projectile> projectilePool, EntityArray<Projectile> out) {
+        int readyCount = 0;
+        for (int t = 0; t < towers.size; t++) {
+            Tower tower = towers.get(t);
+            int n = tower.takeShots(delta);
+            if (n == 0) continue;
+            if (readyCount == ready.length) grow();
+            ready[readyCount] = tower;
+            shots[readyCount] = n;
+            candidateCounts[readyCount] = 0;
+            heaped[readyCount] = false;
+            readyCount++;
+        }
+        if (readyCount == 0) return 0;
+
+        collectCandidates(readyCount);
+
+        int fired = 0, active = readyCount;
+        while (active > 0) {
+            for (int r = 0; r < readyCount; r++) {
+                if (shots[r] == 0) continue;
+                Tower tower = ready[r];
+                Virus target = shots[r] == 1 && !heaped[r] ? best(r) : pop(r);
+                if (target == null) {
+                    tower.holdFire(shots[r]);
+                    shots[r] = 0;
+                } else {
+                    out.add(tower.fire(target, projectilePool));
+                    shots[r]--;
+                    fired++;
+                    if (shots[r] > 0 && target.needsDamage()) push(r, target, score(r, target));
+                }
+                if (shots[r] == 0) active--;
+            }
+        }
+        for (int r = 0; r < readyCount; r++) {
+            ready[r] = null;
+            if (candidateCounts[r] > 0) Arrays.fill(candidates[r], 0, candidateCounts[r], null);
+        }
+        return fired;
+    }
+
+    private void collectCandidates(int readyCount) {
+        touchedCount = 0;
+        int columns = grid.getColumns();
+        float cellSize = grid.getCellSize();
+        for (int r = 0; r < readyCount; r++) {
+            Tower tower = ready[r];
+            float x = tower.getCenterX(), y = tower.getCenterY(), range = tower.getRange();
+            int c0 = grid.column(x - range), c1 = grid.column(x + range);
+            int r0 = grid.row(y - range), r1 = grid.row(y + range);
+            for (int row = r0; row <= r1; row++) {
+                for (int column = c0; column <= c1; column++) {
+                    float dx = (column + 0.5f) * cellSize - x, dy = (row + 0.5f) * cellSize - y;
+                    cover(row * columns + column, r, dx * dx + dy * dy);
+                }
+            }
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int cell = touchedCells[i];
+            int base = cell * MAX_TOWERS_PER_CELL, count = coverCounts[cell];
+            for (Virus v = grid.first(cell); v != null; v = v.gridNext) {
+                if (!v.needsDamage()) continue;
+                float vx = v.getCenterX(), vy = v.getCenterY();
+                for (int k = 0; k < count; k++) {
+                    int r = coverTowers[base + k];
+                    Tower tower = ready[r];
+                    float dx = vx - tower.getCenterX(), dy = vy - tower.getCenterY();
+                    float range = tower.getRange();
+                    float distanceSq = dx * dx + dy * dy;
+                    if (distanceSq <= range * range) {
+                        add(r, v, tower.getTargeting().score(tower, v, distanceSq));
+                    }
+                }
+            }
+            coverCounts[cell] = 0;
+        }
+    }
+
+    // Offer ready tower r to a cell, keeping the cell's list to the nearest few.
+    private void cover(int cell, int r, float distanceSq) {
+        int base = cell * MAX_TOWERS_PER_CELL, count = coverCounts[cell];
+        if (count == 0) {
+            if (touchedCount == touchedCells.length) touchedCells = Arrays.copyOf(touchedCells, touchedCount * 2);
+            touchedCells[touchedCount++] = cell;
+        }
+        if (count == MAX_TOWERS_PER_CELL) {
+            if (distanceSq >= coverDistances[base + count - 1]) return;
+            count--;
+        } else {
+            coverCounts[cell]++;
+        }
+        int k = count;
+        while (k > 0 && coverDistances[base + k - 1] > distanceSq) {
+            coverTowers[base + k] = coverTowers[base + k - 1];
+            coverDistances[base + k] = coverDistances[base + k - 1];
+            k--;
+        }
+        coverTowers[base + k] = r;
+        coverDistances[base + k] = distanceSq;
+    }
+
+    private float score(int r, Virus v) {
+        Tower tower = ready[r];
+        float dx = v.getCenterX() - tower.getCenterX(), dy = v.getCenterY() - tower.getCenterY();
+        return tower.getTargeting().score(tower, v, dx * dx + dy * dy);
+    }
+
+    private void add(int r, Virus v, float score) {
+        Virus[] list = candidates[r];
+        if (list == null) {
+            list = candidates[r] = new Virus[16];
+            scores[r] = new float[16];
+        } else if (candidateCounts[r] == list.length) {
+            list = candidates[r] = Arrays.copyOf(list, list.length * 2);
+            scores[r] = Arrays.copyOf(scores[r], list.length);
+        }
+        list[candidateCounts[r]] = v;
+        scores[r][candidateCounts[r]++] = score;
+    }
+
+    private void push(int r, Virus v, float score) {
+        add(r, v, score);
+        siftUp(r, candidateCounts[r] - 1);
+    }
+
+    // Best candidate for a tower on its last shot, by one pass over the scores. Cheaper than
+    // building a heap for the usual tick where a tower has a single shot.
+    private Virus best(int r) {
+        Virus[] list = candidates[r];
+        float[] s = scores[r];
+        int best = -1;
+        for (int i = 0; i < candidateCounts[r]; i++) {
+            if (!list[i].needsDamage()) continue;
+            if (best < 0 || s[i] < s[best] || (s[i] == s[best] && list[i].getSpawnId() < list[best].getSpawnId())) best = i;
+        }
+        return best < 0 ? null : list[best];
+    }
+
+    // Best candidate for tower r that still needs damage, taken off its heap. Ones that no
+    // longer do are dropped on the way.
+    private Virus pop(int r) {
+        if (!heaped[r]) {
+            heapify(r);
+            heaped[r] = true;
+        }
+        Virus[] list = candidates[r];
+        while (candidateCounts[r] > 0) {
+            Virus top = list[0];
+            int last = --candidateCounts[r];
+            list[0] = list[last];
+            scores[r][0] = scores[r][last];
+            list[last] = null;
+            if (last > 0) siftDown(r, 0);
+            if (top.needsDamage()) return top;
+        }
+        return null;
+    }
+
+    private void heapify(int r) {
+        for (int i = candidateCounts[r] / 2 - 1; i >= 0; i--) siftDown(r, i);
+    }
+
+    // Ties go to the earliest spawn so the choice doesn't depend on visiting order.
+    private boolean before(int r, int a, int b) {
+        float sa = scores[r][a], sb = scores[r][b];
+        if (sa != sb) return sa < sb;
+        return candidates[r][a].getSpawnId() < candidates[r][b].getSpawnId();
+    }
+
+    private void siftUp(int r, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!before(r, i, parent)) break;
+            swap(r, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int r, int i) {
+        int n = candidateCounts[r];
+        while (true) {
+            int left = 2 * i + 1, best = i;
+            if (left < n && before(r, left, best)) best = left;
+            if (left + 1 < n && before(r, left + 1, best)) best = left + 1;
+            if (best == i) return;
+            swap(r, i, best);
+            i = best;
+        }
+    }
+
+    private void swap(int r, int a, int b) {
+        Virus[] list = candidates[r];
+        float[] s = scores[r];
+        Virus v = list[a];
+        list[a] = list[b];
+        list[b] = v;
+        float t = s[a];
+        s[a] = s[b];
+        s[b] = t;
+    }
+
+    private void grow() {
+        int capacity = ready.length * 2;
+        ready = Arrays.copyOf(ready, capacity);
+        shots = Arrays.copyOf(shots, capacity);
+        candidates = Arrays.copyOf(candidates, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        heaped = Arrays.copyOf(heaped, capacity);
+        candidateCounts = Arrays.copyOf(candidateCounts, capacity);
+    }
+}
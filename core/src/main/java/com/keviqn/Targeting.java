@@ -0,0 +1,51 @@
+package com.keviqn;
+
+/**
+ * Built-in targeting strategies.
+ */
+public enum Targeting implements TargetingStrategy {
+    // Closest virus to the tower centre.
+    NEAREST("Nearest") {
+        @Override
+        public float score(Tower tower, Virus virus, float distanceSq) {
+            return distanceSq;
+        }
+    },
+    // Virus that dies soonest, counting damage already in flight.
+    LOWEST_HEALTH("Weakest") {
+        @Override
+        public float score(Tower tower, Virus virus, float distanceSq) {
+            return virus.getHealth() - virus.getPendingDamage();
+        }
+    },
+    // Viruses already attacking storage first, then whichever has the least path left to the
+    // main tower, whichever tower is firing.
+    CLOSEST_TO_TOWER("Closest") {
+        @Override
+        public float score(Tower tower, Virus virus, float distanceSq) {
+            return virus.isCircling() ? -1 : virus.getPathDistance();
+        }
+    },
+    // Oldest virus on the field.
+    FIRST_ARRIVED("First") {
+        @Override
+        public float score(Tower tower, Virus virus, float distanceSq) {
+            return virus.getSpawnId();
+        }
+    };
+
+    private final String label;
+
+    Targeting(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Targeting next() {
+        Targeting[] all = values();
+        return all[(ordinal() + 1) % all.length];
+    }
+}
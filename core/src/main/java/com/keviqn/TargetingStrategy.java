@@ -0,0 +1,11 @@
+package com.keviqn;
+
+/**
+ * Decides which in-range virus a tower shoots at. Lower scores are preferred.
+ */
+public interface TargetingStrategy {
+    /**
+     * @param distanceSq squared distance from the tower centre to the virus centre
+     */
+    float score(Tower tower, Virus virus, float distanceSq);
+}
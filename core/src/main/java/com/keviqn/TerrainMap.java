@@ -0,0 +1,184 @@
+package com.keviqn;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Movement costs on a grid stretched over the whole world. Each cell is either blocked or has
+ * a cost from 1 (open ground) to {@link #MAX_COST}; crossing a cell takes that many times as
+ * long as crossing open ground, as far as pathing is concerned.
+ * <p>
+ * Map files are plain text, one line per row from the top of the world down. {@code .} is open
+ * ground, {@code 1}-{@code 9} is terrain of that cost and {@code #} is a wall. Every row must be
+ * the same width. Blank lines and lines starting with {@code ;} are ignored.
+ */
+public class TerrainMap {
+    public static final byte BLOCKED = 0;
+    public static final byte OPEN = 1;
+    public static final int MAX_COST = 9;
+
+    // Grid used when no map is given: 60 px cells.
+    private static final int DEFAULT_COLUMNS = 40;
+    private static final int DEFAULT_ROWS = 18;
+
+    private final int columns, rows;
+    private final float cellWidth, cellHeight;
+    // Row 0 is the bottom of the world, to match world coordinates.
+    private final byte[] costs;
+
+    public TerrainMap(int columns, int rows) {
+        if (columns < 1 || rows < 1) throw new IllegalArgumentException("Map size " + columns + "x" + rows);
+        this.columns = columns;
+        this.rows = rows;
+        cellWidth = GameWorld.WORLD_WIDTH / columns;
+        cellHeight = GameWorld.WORLD_HEIGHT / rows;
+        costs = new byte[columns * rows];
+        Arrays.fill(costs, OPEN);
+    }
+
+    /**
+     * A map with no walls and no rough ground.
+     */
+    public static TerrainMap open() {
+        return new TerrainMap(DEFAULT_COLUMNS, DEFAULT_ROWS);
+    }
+
+    /**
+     * Parse a map file. Throws IllegalArgumentException naming the line if it is malformed.
+     */
+    public static TerrainMap parse(String text) {
+        String[] lines = text.split("\r?\n");
+        int rowCount = 0, width = -1;
+        for (int i = 0; i < lines.length; i++) {
+            if (isSkipped(lines[i])) continue;
+            int length = lines[i].trim().length();
+            if (width < 0) width = length;
+            else if (length != width) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected " + width + " cells, got " + length);
+            }
+            rowCount++;
+        }
+        if (rowCount == 0) throw new IllegalArgumentException("Map has no rows");
+
+        TerrainMap map = new TerrainMap(width, rowCount);
+        int row = rowCount - 1;
+        for (int i = 0; i < lines.length; i++) {
+            if (isSkipped(lines[i])) continue;
+            String line = lines[i].trim();
+            for (int column = 0; column < width; column++) {
+                char c = line.charAt(column);
+                byte cost;
+                if (c == '.') cost = OPEN;
+                else if (c == '#') cost = BLOCKED;
+                else if (c >= '1' && c <= '9') cost = (byte)(c - '0');
+                else throw new IllegalArgumentException("Line " + (i + 1) + ": unknown cell '" + c + "'");
+                map.costs[row * width + column] = cost;
+            }
+            row--;
+        }
+        return map;
+    }
+
+    public TerrainMap copy() {
+        TerrainMap map = new TerrainMap(columns, rows);
+        System.arraycopy(costs, 0, map.costs, 0, costs.length);
+        return map;
+    }
+
+    private static boolean isSkipped(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.charAt(0) == ';';
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCellCount() {
+        return costs.length;
+    }
+
+    public float getCellWidth() {
+        return cellWidth;
+    }
+
+    public float getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * Cell containing the world point, clamped to the grid.
+     */
+    public int cellAt(float x, float y) {
+        int column = (int)(x / cellWidth);
+        int row = (int)(y / cellHeight);
+        if (column < 0) column = 0;
+        else if (column >= columns) column = columns - 1;
+        if (row < 0) row = 0;
+        else if (row >= rows) row = rows - 1;
+        return row * columns + column;
+    }
+
+    public int cell(int column, int row) {
+        return row * columns + column;
+    }
+
+    public int columnOf(int cell) {
+        return cell % columns;
+    }
+
+    public int rowOf(int cell) {
+        return cell / columns;
+    }
+
+    public float getCellX(int cell) {
+        return columnOf(cell) * cellWidth;
+    }
+
+    public float getCellY(int cell) {
+        return rowOf(cell) * cellHeight;
+    }
+
+    public int getCost(int cell) {
+        return costs[cell];
+    }
+
+    public boolean isBlocked(int cell) {
+        return costs[cell] == BLOCKED;
+    }
+
+    /**
+     * True if no cell is blocked or rough.
+     */
+    public boolean isOpen() {
+        for (byte cost : costs) {
+            if (cost != OPEN) return false;
+        }
+        return true;
+    }
+
+    // Only the flow field changes costs, so it knows what to rebuild.
+    void setCost(int cell, int cost) {
+        if (cost < BLOCKED || cost > MAX_COST) throw new IllegalArgumentException("cost: " + cost);
+        costs[cell] = (byte)cost;
+    }
+
+    // Snapshot support.
+    void write(DataOutput out) throws IOException {
+        out.writeShort(columns);
+        out.writeShort(rows);
+        out.write(costs);
+    }
+
+    static TerrainMap read(DataInput in) throws IOException {
+        TerrainMap map = new TerrainMap(in.readUnsignedShort(), in.readUnsignedShort());
+        in.readFully(map.costs);
+        return map;
+    }
+}
@@ -1,15 +1,27 @@
 package com.keviqn;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.MathUtils;
-import java.util.ArrayList;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Pool;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
+/**
+ * A tower. The main tower holds the upgrades, gathers GP and losing its storage ends the game.
+ * Towers the player places are relays of the main one: they shoot with its stats, targeting and
+ * guidance but soak up virus attacks in their own storage, and are destroyed when it fills.
+ */
 public class Tower {
+    // Most shots one tick hands out per tower. Anything earned beyond that after a stall is dropped.
+    static final int MAX_SHOTS_PER_TICK = 64;
+    // Fixed steps gatherCurrency takes to pay out once. Float rounding can make it one more than a second's worth.
+    private static final int TICKS_PER_PAYOUT = payoutTicks();
+
     private float x, y;
     private float width = 350, height = 350;
-    private Texture texture;
+    // Where stats come from: this tower, or the main tower for a relay.
+    private final Tower source;
 
     // Upgrade levels and prices.
     private int softwareVersionLevel = 1;
@@ -18,36 +30,41 @@ public class Tower {
     private int internetSpeedLevel = 1;
     private int graphicsCardLevel = 1;
 
-    private int softwareVersionPrice = 1;
-    private int processorSpeedPrice = 1;
-    private int storageSpacePrice = 1;
-    private int internetSpeedPrice = 1;
-    private int graphicsCardPrice = 1;
+    private int softwareVersionPrice = PriceTable.BASE_PRICE;
+    private int processorSpeedPrice = PriceTable.BASE_PRICE;
+    private int storageSpacePrice = PriceTable.BASE_PRICE;
+    private int internetSpeedPrice = PriceTable.BASE_PRICE;
+    private int graphicsCardPrice = PriceTable.BASE_PRICE;
 
     // Derived stats:
     // Defense = softwareVersionLevel * 3.
     public float getDefense() {
-        return softwareVersionLevel * 3;
+        return source.softwareVersionLevel * 3;
     }
 
     // Processor Speed = processorSpeedLevel * 2.
     public float getProcessorSpeed() {
-        return processorSpeedLevel * 2;
+        return source.processorSpeedLevel * 2;
     }
 
     // Storage Available = 100 * storageSpaceLevel.
     public float getStorageAvailable() {
-        return 100 * storageSpaceLevel;
+        return 100 * source.storageSpaceLevel;
     }
 
     // Internet Speed = internetSpeedLevel * 50.
     public float getInternetSpeed() {
-        return internetSpeedLevel * 50;
+        return source.internetSpeedLevel * 50;
     }
 
     // Graphics Card = graphicsCardLevel * 3.
     public float getGraphicsCard() {
-        return graphicsCardLevel * 3;
+        return source.graphicsCardLevel * 3;
+    }
+
+    // Shots it takes to kill a fresh virus.
+    public int getShotsPerKill() {
+        return Math.max(1, (int)Math.ceil(Virus.HEALTH / getGraphicsCard()));
     }
 
     // Storage total.
@@ -60,17 +77,34 @@ public class Tower {
     }
 
     private float attackTimer = 0;
+    private TargetingStrategy targeting = Targeting.FIRST_ARRIVED;
+    private Guidance guidance = Guidance.HOMING;
     private float currencyTimer = 0;
 
-    private Texture cannonballTexture;
-
     public Tower(float x, float y, float width, float height) {
+        this(x, y, width, height, null);
+    }
+
+    /**
+     * A relay of the given main tower, or a main tower if main is null.
+     */
+    public Tower(float x, float y, float width, float height, Tower main) {
         this.x = x;
         this.y = y;
         this.width = width;
         this.height = height;
-        texture = new Texture(Gdx.files.internal("tower.png"));
-        cannonballTexture = new Texture(Gdx.files.internal("zap.png"));
+        source = main == null ? this : main;
+    }
+
+    public boolean isMain() {
+        return source == this;
+    }
+
+    /**
+     * Attack range, 100 + internetSpeed.
+     */
+    public float getRange() {
+        return 100 + getInternetSpeed();
     }
 
     public float getCenterX() {
@@ -89,7 +123,7 @@ public class Tower {
     }
     public void upgradeSoftwareVersion() {
         softwareVersionLevel++;
-        softwareVersionPrice = MathUtils.round(softwareVersionPrice * 1.3f);
+        softwareVersionPrice = PriceTable.price(softwareVersionLevel);
     }
 
     public int getProcessorSpeedLevel() {
@@ -100,7 +134,7 @@ public class Tower {
     }
     public void upgradeProcessorSpeed() {
         processorSpeedLevel++;
-        processorSpeedPrice = MathUtils.round(processorSpeedPrice * 1.3f);
+        processorSpeedPrice = PriceTable.price(processorSpeedLevel);
     }
 
     public int getStorageSpaceLevel() {
@@ -111,7 +145,7 @@ public class Tower {
     }
     public void upgradeStorageSpace() {
         storageSpaceLevel++;
-        storageSpacePrice = MathUtils.round(storageSpacePrice * 1.3f);
+        storageSpacePrice = PriceTable.price(storageSpaceLevel);
     }
 
     public int getInternetSpeedLevel() {
@@ -122,7 +156,7 @@ public class Tower {
     }
     public void upgradeInternetSpeed() {
         internetSpeedLevel++;
-        internetSpeedPrice = MathUtils.round(internetSpeedPrice * 1.3f);
+        internetSpeedPrice = PriceTable.price(internetSpeedLevel);
     }
 
     public int getGraphicsCardLevel() {
@@ -133,28 +167,133 @@ public class Tower {
     }
     public void upgradeGraphicsCard() {
         graphicsCardLevel++;
-        graphicsCardPrice = MathUtils.round(graphicsCardPrice * 1.3f);
+        graphicsCardPrice = PriceTable.price(graphicsCardLevel);
+    }
+
+    public int getLevel(Upgrade upgrade) {
+        switch (upgrade) {
+            case SOFTWARE_VERSION: return softwareVersionLevel;
+            case PROCESSOR_SPEED: return processorSpeedLevel;
+            case STORAGE_SPACE: return storageSpaceLevel;
+            case INTERNET_SPEED: return internetSpeedLevel;
+            default: return graphicsCardLevel;
+        }
+    }
+
+    public int getPrice(Upgrade upgrade) {
+        switch (upgrade) {
+            case SOFTWARE_VERSION: return softwareVersionPrice;
+            case PROCESSOR_SPEED: return processorSpeedPrice;
+            case STORAGE_SPACE: return storageSpacePrice;
+            case INTERNET_SPEED: return internetSpeedPrice;
+            default: return graphicsCardPrice;
+        }
+    }
+
+    public void upgrade(Upgrade upgrade) {
+        switch (upgrade) {
+            case SOFTWARE_VERSION: upgradeSoftwareVersion(); break;
+            case PROCESSOR_SPEED: upgradeProcessorSpeed(); break;
+            case STORAGE_SPACE: upgradeStorageSpace(); break;
+            case INTERNET_SPEED: upgradeInternetSpeed(); break;
+            default: upgradeGraphicsCard(); break;
+        }
     }
 
     /**
-     * Tower attack: every 1/processorSpeed seconds, if a virus is within range (100+internetSpeed),
-     * spawn a projectile that deals damage equal to graphicsCard.
+     * Apply count levels of an upgrade at once. Prices come straight from the {@link PriceTable}.
      */
-    public Projectile tryAttack(float delta, ArrayList<Virus> viruses) {
+    public void upgrade(Upgrade upgrade, int count) {
+        switch (upgrade) {
+            case SOFTWARE_VERSION:
+                softwareVersionLevel += count;
+                softwareVersionPrice = PriceTable.price(softwareVersionLevel);
+                break;
+            case PROCESSOR_SPEED:
+                processorSpeedLevel += count;
+                processorSpeedPrice = PriceTable.price(processorSpeedLevel);
+                break;
+            case STORAGE_SPACE:
+                storageSpaceLevel += count;
+                storageSpacePrice = PriceTable.price(storageSpaceLevel);
+                break;
+            case INTERNET_SPEED:
+                internetSpeedLevel += count;
+                internetSpeedPrice = PriceTable.price(internetSpeedLevel);
+                break;
+            default:
+                graphicsCardLevel += count;
+                graphicsCardPrice = PriceTable.price(graphicsCardLevel);
+                break;
+        }
+    }
+
+    /**
+     * Levels bought across all upgrades.
+     */
+    public long getUpgradesBought() {
+        long bought = 0;
+        for (Upgrade upgrade : Upgrade.values()) bought += getLevel(upgrade) - 1;
+        return bought;
+    }
+
+    /**
+     * GP spent on upgrades so far. Prices depend only on level, so this follows from the levels.
+     */
+    public long getGpSpent() {
+        long spent = 0;
+        for (Upgrade upgrade : Upgrade.values()) spent += PriceTable.total(getLevel(upgrade) - 1);
+        return spent;
+    }
+
+    public TargetingStrategy getTargeting() {
+        return source.targeting;
+    }
+    public void setTargeting(TargetingStrategy targeting) {
+        this.targeting = targeting;
+    }
+
+    public Guidance getGuidance() {
+        return source.guidance;
+    }
+    public void setGuidance(Guidance guidance) {
+        this.guidance = guidance;
+    }
+
+    /**
+     * Tower attack: one shot per 1/processorSpeed seconds at a virus within range, each dealing
+     * damage equal to graphicsCard. Cooldown accumulates, so this returns every shot earned
+     * during delta, however short the cooldown is against the tick; the {@link TargetScheduler}
+     * then fires them or hands back the ones it found no target for.
+     */
+    int takeShots(float delta) {
         attackTimer += delta;
         float cooldown = 1f / getProcessorSpeed();
-        if (attackTimer < cooldown) return null;
-        attackTimer = 0;
-        for (Virus virus : viruses) {
-            if (virus.isAlive()) {
-                float distance = com.badlogic.gdx.math.Vector2.dst(getCenterX(), getCenterY(), virus.getCenterX(), virus.getCenterY());
-                if (distance <= 100 + getInternetSpeed()) {
-                    float effectiveDamage = getGraphicsCard();
-                    return new Projectile(getCenterX(), getCenterY(), virus, effectiveDamage, cannonballTexture);
-                }
-            }
-        }
-        return null;
+        if (attackTimer < cooldown) return 0;
+        int shots = Math.min((int)(attackTimer / cooldown), MAX_SHOTS_PER_TICK);
+        attackTimer -= shots * cooldown;
+        if (attackTimer > cooldown) attackTimer = cooldown;
+        return shots;
+    }
+
+    /**
+     * Give back shots that found no target: stay ready to fire, but don't bank a burst for later.
+     */
+    void holdFire(int shots) {
+        float cooldown = 1f / getProcessorSpeed();
+        attackTimer = Math.min(attackTimer + shots * cooldown, cooldown);
+    }
+
+    /**
+     * Fire one shot at the target with the tower's guidance, for as long as the range allows.
+     * Its damage counts as pending on the target until it lands or expires.
+     */
+    Projectile fire(Virus target, Pool<Projectile> projectilePool) {
+        float effectiveDamage = getGraphicsCard();
+        Projectile projectile = projectilePool.obtain();
+        projectile.init(getCenterX(), getCenterY(), target, effectiveDamage, getGuidance(), getRange());
+        target.addPendingDamage(effectiveDamage);
+        return projectile;
     }
 
     /**
@@ -169,7 +308,75 @@ public class Tower {
         return 0;
     }
 
-    public void render(SpriteBatch batch) {
-        batch.draw(texture, x, y, width, height);
+    /**
+     * Currency {@link #gatherCurrency} would pay out over the given number of fixed steps,
+     * worked out without stepping them.
+     */
+    public long currencyOver(long ticks) {
+        long elapsed = Math.round(currencyTimer / GameWorld.STEP) + ticks;
+        return elapsed / TICKS_PER_PAYOUT * (long)getProcessorSpeed();
+    }
+
+    private static int payoutTicks() {
+        float timer = 0;
+        int ticks = 0;
+        while (timer < 1f) {
+            timer += GameWorld.STEP;
+            ticks++;
+        }
+        return ticks;
+    }
+
+    // Snapshot support. Only built-in targeting strategies survive a round trip.
+    void write(DataOutput out) throws IOException {
+        out.writeInt(softwareVersionLevel);
+        out.writeInt(processorSpeedLevel);
+        out.writeInt(storageSpaceLevel);
+        out.writeInt(internetSpeedLevel);
+        out.writeInt(graphicsCardLevel);
+        out.writeInt(softwareVersionPrice);
+        out.writeInt(processorSpeedPrice);
+        out.writeInt(storageSpacePrice);
+        out.writeInt(internetSpeedPrice);
+        out.writeInt(graphicsCardPrice);
+        out.writeFloat(storageTotal);
+        out.writeFloat(attackTimer);
+        out.writeFloat(currencyTimer);
+        out.writeByte(targeting instanceof Targeting ? ((Targeting)targeting).ordinal() : -1);
+        out.writeByte(guidance.ordinal());
+    }
+
+    void read(DataInput in) throws IOException {
+        softwareVersionLevel = in.readInt();
+        processorSpeedLevel = in.readInt();
+        storageSpaceLevel = in.readInt();
+        internetSpeedLevel = in.readInt();
+        graphicsCardLevel = in.readInt();
+        softwareVersionPrice = in.readInt();
+        processorSpeedPrice = in.readInt();
+        storageSpacePrice = in.readInt();
+        internetSpeedPrice = in.readInt();
+        graphicsCardPrice = in.readInt();
+        storageTotal = in.readFloat();
+        attackTimer = in.readFloat();
+        currencyTimer = in.readFloat();
+        int targetingOrdinal = in.readByte();
+        if (targetingOrdinal >= 0) targeting = Targeting.values()[targetingOrdinal];
+        guidance = Guidance.values()[in.readByte()];
+    }
+
+    // A relay's own state; everything else comes from the main tower.
+    void writeRelay(DataOutput out) throws IOException {
+        out.writeFloat(storageTotal);
+        out.writeFloat(attackTimer);
+    }
+
+    void readRelay(DataInput in) throws IOException {
+        storageTotal = in.readFloat();
+        attackTimer = in.readFloat();
+    }
+
+    public void render(SpriteBatch batch, TextureRegion region) {
+        batch.draw(region, x, y, width, height);
     }
 }
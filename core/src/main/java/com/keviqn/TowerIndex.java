@@ -0,0 +1,73 @@
+package com.keviqn;
+
+/**
+ * Placed (relay) towers by the map cell they stand on, so a virus can find the relay it is
+ * touching with a look at the few cells around it, however many relays there are.
+ * <p>
+ * Viruses don't seek out relays. They all follow the one flow field to the main tower, and a
+ * relay's cell is blocked, so paths bend around it; a virus hits a relay only when its path
+ * passes within {@link #CONTACT_RANGE}. A relay standing off the paths is never attacked, and
+ * one placed to narrow a path draws the attacks of everything squeezing past.
+ */
+public class TowerIndex {
+    // Centre-to-centre distance within which a virus hits a relay. Reaches into the open cells
+    // next to a relay's blocked cell, where paths around it run.
+    public static final float CONTACT_RANGE = 100;
+
+    private final TerrainMap terrain;
+    private final Tower[] byCell;
+    // Cells to search on each side of the virus's cell.
+    private final int reachColumns, reachRows;
+    private int count;
+
+    public TowerIndex(TerrainMap terrain) {
+        this.terrain = terrain;
+        byCell = new Tower[terrain.getCellCount()];
+        reachColumns = (int)Math.ceil(CONTACT_RANGE / terrain.getCellWidth());
+        reachRows = (int)Math.ceil(CONTACT_RANGE / terrain.getCellHeight());
+    }
+
+    public void add(int cell, Tower tower) {
+        if (byCell[cell] == null) count++;
+        byCell[cell] = tower;
+    }
+
+    public void remove(int cell) {
+        if (byCell[cell] != null) count--;
+        byCell[cell] = null;
+    }
+
+    public Tower get(int cell) {
+        return byCell[cell];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Nearest relay within {@link #CONTACT_RANGE} of (x, y), or null. Ties go to the lower cell.
+     */
+    public Tower nearest(float x, float y) {
+        if (count == 0) return null;
+        int center = terrain.cellAt(x, y);
+        int column = terrain.columnOf(center), row = terrain.rowOf(center);
+        int r0 = Math.max(0, row - reachRows), r1 = Math.min(terrain.getRows() - 1, row + reachRows);
+        int c0 = Math.max(0, column - reachColumns), c1 = Math.min(terrain.getColumns() - 1, column + reachColumns);
+        Tower best = null;
+        float bestDistanceSq = CONTACT_RANGE * CONTACT_RANGE;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                Tower tower = byCell[terrain.cell(c, r)];
+                if (tower == null) continue;
+                float dx = tower.getCenterX() - x, dy = tower.getCenterY() - y;
+                float distanceSq = dx * dx + dy * dy;
+                if (distanceSq < bestDistanceSq || (best == null && distanceSq == bestDistanceSq)) {
+                    best = tower;
+                    bestDistanceSq = distanceSq;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,22 @@
+package com.keviqn;
+
+/**
+ * The five tower upgrades a player can buy.
+ */
+public enum Upgrade {
+    SOFTWARE_VERSION("Software Version"),
+    PROCESSOR_SPEED("Processor Speed"),
+    STORAGE_SPACE("Storage Space"),
+    INTERNET_SPEED("Internet Speed"),
+    GRAPHICS_CARD("Graphics Card");
+
+    private final String label;
+
+    Upgrade(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
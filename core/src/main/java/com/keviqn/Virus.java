@@ -1,93 +1,145 @@
 package com.keviqn;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
-
-public class Virus {
-    public float health;
-    public float damage;  // fixed damage per attack
-    public float x, y;
-    public float size = 150;  // virus image size
-    private boolean circling = false;
-    private float circlingAngle = 0;
-    private float attackTimer = 0;
-    public boolean processedKill = false;
-    public float speed;  // set externally
-    private Texture texture;
-
-    public Virus(float x, float y) {
-        this.x = x;
-        this.y = y;
-        health = 5;
-        damage = 2;
-        texture = new Texture(Gdx.files.internal("virus.png"));
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A view of one virus slot in a {@link VirusStore}. The state itself lives in the store's
+ * arrays; this object only knows which slot it points at, and follows the virus when the store
+ * compacts. Views are pooled, so anything holding on to one across ticks should remember its
+ * {@link #getGeneration() generation} and check it is unchanged before using it.
+ */
+public class Virus implements Pool.Poolable {
+    public static final float SIZE = 150;  // virus image size
+    public static final float HEALTH = 5;
+    public static final float DAMAGE = 2;  // fixed damage per attack
+
+    private VirusStore store;
+    private int index = -1;
+    // Bumped every time the view is recycled, invalidating old references to it.
+    private int generation;
+
+    // Spatial grid bookkeeping (owned by SpatialGrid).
+    int gridCell = -1;
+    Virus gridPrev, gridNext;
+
+    void bind(VirusStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getGeneration() {
+        return generation;
     }
 
     public boolean isAlive() {
-        return health > 0;
+        return store.health[index] > 0;
     }
 
     public boolean isCircling() {
-        return circling;
+        return (store.flags[index] & VirusStore.CIRCLING) != 0;
+    }
+
+    /**
+     * Distance left along the flow field to the main tower; 0 once circling it.
+     */
+    public float getPathDistance() {
+        return store.pathDistance(index);
+    }
+
+    public boolean isKillProcessed() {
+        return (store.flags[index] & VirusStore.KILL_PROCESSED) != 0;
     }
 
     public void decreaseHealth(float amount) {
-        health -= amount;
+        store.health[index] -= amount;
+    }
+
+    public float getHealth() {
+        return store.health[index];
+    }
+
+    /**
+     * Damage already on its way in projectiles that haven't landed yet.
+     */
+    public float getPendingDamage() {
+        return store.pendingDamage[index];
+    }
+
+    void addPendingDamage(float amount) {
+        store.pendingDamage[index] += amount;
+    }
+
+    /**
+     * True while the projectiles in flight toward this virus aren't enough to kill it.
+     */
+    public boolean needsDamage() {
+        return store.health[index] > store.pendingDamage[index];
+    }
+
+    public float getSpeed() {
+        return store.speed[index];
+    }
+
+    public int getSpawnId() {
+        return store.spawnId[index];
+    }
+
+    public float getX() {
+        return store.x[index];
+    }
+
+    public float getY() {
+        return store.y[index];
+    }
+
+    public float getVelocityX() {
+        return store.vx[index];
+    }
+
+    public float getVelocityY() {
+        return store.vy[index];
     }
 
     public float getCenterX() {
-        return x + size / 2f;
+        return store.x[index] + SIZE / 2f;
     }
 
     public float getCenterY() {
-        return y + size / 2f;
+        return store.y[index] + SIZE / 2f;
     }
 
     /**
      * Move toward the tower until within threshold, then circle.
      */
     public void update(float delta, float targetX, float targetY) {
-        float centerX = getCenterX();
-        float centerY = getCenterY();
-        float dx = targetX - centerX;
-        float dy = targetY - centerY;
-        float distance = (float)Math.sqrt(dx * dx + dy * dy);
-        float threshold = 50;
-        if (!circling) {
-            if (distance > threshold) {
-                float norm = distance;
-                float vx = speed * dx / norm;
-                float vy = speed * dy / norm;
-                x += vx * delta;
-                y += vy * delta;
-            } else {
-                circling = true;
-                circlingAngle = (float)Math.atan2(dy, dx);
-            }
-        } else {
-            float angularSpeed = 0.5f;
-            circlingAngle += angularSpeed * delta;
-            x = targetX - size / 2f + (float)Math.cos(circlingAngle) * threshold;
-            y = targetY - size / 2f + (float)Math.sin(circlingAngle) * threshold;
-        }
+        store.updateRange(index, index + 1, delta, targetX, targetY);
     }
 
     /**
-     * When circling, attack the tower once per second, adding damage to tower's storage.
+     * Once per second while in contact, attack the nearest tower, adding damage to its storage:
+     * the main tower when circling it, otherwise the nearest relay within reach. Relays are only
+     * reached in passing, on the way to the main tower.
      */
-    public void tryAttackTower(float delta, Tower tower) {
-        if (!circling || !isAlive()) return;
-        attackTimer += delta;
-        if (attackTimer >= 1f) {
-            attackTimer = 0;
-            tower.addStorageDamage(damage);
-        }
+    public void tryAttackTower(float delta, Tower main, TowerIndex relays) {
+        store.attack(index, delta, main, relays);
+    }
+
+    public void render(SpriteBatch batch, TextureRegion region) {
+        batch.draw(region, getX(), getY(), 250, 100);
     }
 
-    public void render(SpriteBatch batch) {
-        batch.draw(texture, x, y, 250, 100);
+    @Override
+    public void reset() {
+        generation++;
+        store = null;
+        index = -1;
+        gridCell = -1;
+        gridPrev = gridNext = null;
     }
 }
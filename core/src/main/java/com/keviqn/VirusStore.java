@@ -0,0 +1,337 @@
+package com.keviqn;
+
+import com.badlogic.gdx.utils.Pool;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Structure-of-arrays storage for every virus in the world.
+ * Position, velocity, health, pending damage, speed, circling angle, attack timer and flags live in parallel primitive
+ * arrays so the per-tick update is a tight loop over contiguous memory. {@link Virus} objects are
+ * thin views bound to a slot, for code that wants to talk about one virus at a time.
+ */
+public class VirusStore {
+    // Flag bits.
+    static final byte CIRCLING = 1;
+    static final byte KILL_PROCESSED = 2;
+
+    // Distance from the tower centre at which a virus starts circling.
+    static final float THRESHOLD = 50;
+    static final float ANGULAR_SPEED = 0.5f;
+    static final float HALF_SIZE = Virus.SIZE / 2f;
+
+    float[] x, y;
+    // Velocity over the last movement update, for projectiles that lead their target.
+    float[] vx, vy;
+    float[] health;
+    // Damage carried by projectiles in flight toward each virus. Derived from the projectiles,
+    // so it is rebuilt rather than saved.
+    float[] pendingDamage;
+    float[] damage;
+    float[] speed;
+    float[] angle;
+    float[] attackTimer;
+    byte[] flags;
+    int[] spawnId;
+    Virus[] views;
+    int size;
+    // Directions to the tower; null steers every virus straight at it.
+    private FlowField flowField;
+
+    public VirusStore(int capacity) {
+        allocate(Math.max(capacity, 16));
+    }
+
+    private void allocate(int capacity) {
+        x = copy(x, capacity);
+        y = copy(y, capacity);
+        vx = copy(vx, capacity);
+        vy = copy(vy, capacity);
+        health = copy(health, capacity);
+        pendingDamage = copy(pendingDamage, capacity);
+        damage = copy(damage, capacity);
+        speed = copy(speed, capacity);
+        angle = copy(angle, capacity);
+        attackTimer = copy(attackTimer, capacity);
+        byte[] newFlags = new byte[capacity];
+        int[] newSpawnId = new int[capacity];
+        Virus[] newViews = new Virus[capacity];
+        if (flags != null) {
+            System.arraycopy(flags, 0, newFlags, 0, size);
+            System.arraycopy(spawnId, 0, newSpawnId, 0, size);
+            System.arraycopy(views, 0, newViews, 0, size);
+        }
+        flags = newFlags;
+        spawnId = newSpawnId;
+        views = newViews;
+    }
+
+    private float[] copy(float[] old, int capacity) {
+        float[] array = new float[capacity];
+        if (old != null) System.arraycopy(old, 0, array, 0, size);
+        return array;
+    }
+
+    /**
+     * Grow the arrays so that at least the given number of viruses fit without reallocating.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > x.length) allocate(Math.max(capacity, x.length + (x.length >> 1)));
+    }
+
+    /**
+     * Grow the arrays to exactly the given number of slots, if they are smaller. For growing in
+     * small steps ahead of need, where {@link #ensureCapacity} would overshoot.
+     */
+    public void reserve(int capacity) {
+        if (capacity > x.length) allocate(capacity);
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Append a virus and bind the given view to its slot.
+     */
+    public Virus add(Virus view, float spawnX, float spawnY, float spawnSpeed, int id) {
+        ensureCapacity(size + 1);
+        int i = size++;
+        x[i] = spawnX;
+        y[i] = spawnY;
+        vx[i] = 0;
+        vy[i] = 0;
+        health[i] = Virus.HEALTH;
+        pendingDamage[i] = 0;
+        damage[i] = Virus.DAMAGE;
+        speed[i] = spawnSpeed;
+        angle[i] = 0;
+        attackTimer[i] = 0;
+        flags[i] = 0;
+        spawnId[i] = id;
+        views[i] = view;
+        view.bind(this, i);
+        return view;
+    }
+
+    /**
+     * Remove every virus whose kill has been processed, keeping the survivors in order and
+     * updating their views' slot indices. Freed views go back to the pool. Returns the number removed.
+     */
+    public int removeDead(Pool<Virus> pool) {
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if ((flags[r] & KILL_PROCESSED) != 0) {
+                pool.free(views[r]);
+                continue;
+            }
+            if (w != r) {
+                x[w] = x[r];
+                y[w] = y[r];
+                vx[w] = vx[r];
+                vy[w] = vy[r];
+                health[w] = health[r];
+                pendingDamage[w] = pendingDamage[r];
+                damage[w] = damage[r];
+                speed[w] = speed[r];
+                angle[w] = angle[r];
+                attackTimer[w] = attackTimer[r];
+                flags[w] = flags[r];
+                spawnId[w] = spawnId[r];
+                views[w] = views[r];
+                views[w].bind(this, w);
+            }
+            w++;
+        }
+        int removed = size - w;
+        for (int i = w; i < size; i++) views[i] = null;
+        size = w;
+        return removed;
+    }
+
+    /**
+     * Drop every virus. Views stay bound until the caller returns them to their pool.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) views[i] = null;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Virus get(int index) {
+        return views[index];
+    }
+
+    public int countAlive() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (health[i] > 0) count++;
+        }
+        return count;
+    }
+
+    public void setFlowField(FlowField flowField) {
+        this.flowField = flowField;
+    }
+
+    /**
+     * How far virus i still has to go to reach the tower: 0 once circling, infinite without a
+     * flow field to measure along.
+     */
+    float pathDistance(int i) {
+        if ((flags[i] & CIRCLING) != 0) return 0;
+        if (flowField == null) return Float.POSITIVE_INFINITY;
+        return flowField.pathDistance(x[i] + HALF_SIZE, y[i] + HALF_SIZE);
+    }
+
+    /**
+     * Movement kernel: approach (targetX, targetY) until within the threshold, then circle it.
+     * With a flow field each virus follows the direction of the cell it is in, heading straight
+     * for the target only where the field has no direction (near the target, or stranded).
+     * Rough ground divides speed by its cost, matching what the field charges for crossing it.
+     * A step that would carry a virus's centre into a wall loses the part that does, unless the
+     * virus is stranded.
+     */
+    public void updateAll(float delta, float targetX, float targetY) {
+        updateRange(0, size, delta, targetX, targetY);
+    }
+
+    public void updateRange(int from, int to, float delta, float targetX, float targetY) {
+        final float[] x = this.x, y = this.y, vx = this.vx, vy = this.vy, speed = this.speed, angle = this.angle;
+        final byte[] flags = this.flags;
+        final FlowField field = flowField;
+        final TerrainMap terrain = field == null ? null : field.getTerrain();
+        for (int i = from; i < to; i++) {
+            float oldX = x[i], oldY = y[i];
+            int cell = -1;
+            if ((flags[i] & CIRCLING) == 0 && field != null) {
+                cell = field.cellAt(oldX + HALF_SIZE, oldY + HALF_SIZE);
+                float ux = field.directionX[cell], uy = field.directionY[cell];
+                if (ux != 0 || uy != 0) {
+                    float s = speed[i] / Math.max(1, terrain.getCost(cell));
+                    x[i] += s * ux * delta;
+                    y[i] += s * uy * delta;
+                    stayOutOfWalls(i, oldX, oldY, terrain);
+                    vx[i] = (x[i] - oldX) / delta;
+                    vy[i] = (y[i] - oldY) / delta;
+                    continue;
+                }
+            }
+            float dx = targetX - (x[i] + HALF_SIZE);
+            float dy = targetY - (y[i] + HALF_SIZE);
+            if ((flags[i] & CIRCLING) == 0) {
+                float distance = (float)Math.sqrt(dx * dx + dy * dy);
+                if (distance > THRESHOLD) {
+                    float s = speed[i];
+                    if (cell >= 0) s /= Math.max(1, terrain.getCost(cell));
+                    x[i] += s * dx / distance * delta;
+                    y[i] += s * dy / distance * delta;
+                    // A stranded virus walks through walls, so one sealed off still gets there.
+                    if (cell >= 0 && field.isGoal(cell)) stayOutOfWalls(i, oldX, oldY, terrain);
+                } else {
+                    flags[i] |= CIRCLING;
+                    angle[i] = (float)StrictMath.atan2(dy, dx);
+                }
+            } else {
+                float a = angle[i] + ANGULAR_SPEED * delta;
+                angle[i] = a;
+                x[i] = targetX - HALF_SIZE + (float)StrictMath.cos(a) * THRESHOLD;
+                y[i] = targetY - HALF_SIZE + (float)StrictMath.sin(a) * THRESHOLD;
+            }
+            vx[i] = (x[i] - oldX) / delta;
+            vy[i] = (y[i] - oldY) / delta;
+        }
+    }
+
+    // Undo the part of virus i's step from (oldX, oldY) that put its centre in a wall: slide
+    // along it on one axis if that is clear, otherwise stay put. A virus already inside a wall
+    // (a relay placed on top of it) is free to walk out.
+    private void stayOutOfWalls(int i, float oldX, float oldY, TerrainMap terrain) {
+        if (!terrain.isBlocked(terrain.cellAt(x[i] + HALF_SIZE, y[i] + HALF_SIZE))) return;
+        if (terrain.isBlocked(terrain.cellAt(oldX + HALF_SIZE, oldY + HALF_SIZE))) return;
+        if (!terrain.isBlocked(terrain.cellAt(x[i] + HALF_SIZE, oldY + HALF_SIZE))) {
+            y[i] = oldY;
+        } else if (!terrain.isBlocked(terrain.cellAt(oldX + HALF_SIZE, y[i] + HALF_SIZE))) {
+            x[i] = oldX;
+        } else {
+            x[i] = oldX;
+            y[i] = oldY;
+        }
+    }
+
+    void write(DataOutput out, int i) throws IOException {
+        out.writeFloat(x[i]);
+        out.writeFloat(y[i]);
+        out.writeFloat(vx[i]);
+        out.writeFloat(vy[i]);
+        out.writeFloat(health[i]);
+        out.writeFloat(damage[i]);
+        out.writeFloat(speed[i]);
+        out.writeFloat(angle[i]);
+        out.writeFloat(attackTimer[i]);
+        out.writeByte(flags[i]);
+        out.writeInt(spawnId[i]);
+    }
+
+    /**
+     * Append a virus from a snapshot and bind the given view to it.
+     */
+    Virus read(DataInput in, Virus view) throws IOException {
+        add(view, 0, 0, 0, 0);
+        int i = size - 1;
+        x[i] = in.readFloat();
+        y[i] = in.readFloat();
+        vx[i] = in.readFloat();
+        vy[i] = in.readFloat();
+        health[i] = in.readFloat();
+        damage[i] = in.readFloat();
+        speed[i] = in.readFloat();
+        angle[i] = in.readFloat();
+        attackTimer[i] = in.readFloat();
+        flags[i] = in.readByte();
+        spawnId[i] = in.readInt();
+        return view;
+    }
+
+    /**
+     * Attack kernel: every live virus in contact with a tower hits it once per second. Circling
+     * viruses hit the main tower; the rest hit the nearest relay within reach, if any. Movement
+     * never heads for a relay, so only viruses whose path runs past one hit it.
+     */
+    public void attackAll(float delta, Tower main, TowerIndex relays) {
+        for (int i = 0; i < size; i++) {
+            attack(i, delta, main, relays);
+        }
+    }
+
+    void attack(int i, float delta, Tower main, TowerIndex relays) {
+        if (strike(i, delta, main, relays)) target(i, main, relays).addStorageDamage(damage[i]);
+    }
+
+    /**
+     * The tower a virus is in contact with, or null.
+     */
+    Tower target(int i, Tower main, TowerIndex relays) {
+        if ((flags[i] & CIRCLING) != 0) return main;
+        return relays.nearest(x[i] + HALF_SIZE, y[i] + HALF_SIZE);
+    }
+
+    /**
+     * Advance one virus's attack timer while it is in contact with a tower. Returns true if it
+     * lands a hit this tick; the caller applies the damage to {@link #target}, which lets the
+     * parallel updater merge hits in slot order.
+     */
+    boolean strike(int i, float delta, Tower main, TowerIndex relays) {
+        if (health[i] <= 0 || target(i, main, relays) == null) return false;
+        attackTimer[i] += delta;
+        if (attackTimer[i] >= 1f) {
+            attackTimer[i] = 0;
+            return true;
+        }
+        return false;
+    }
+}
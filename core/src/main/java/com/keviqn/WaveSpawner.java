@@ -0,0 +1,94 @@
+package com.keviqn;
+
+import com.badlogic.gdx.math.RandomXS128;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Lets a wave out over time following its {@link SpawnPattern}, instead of all in the tick the
+ * wave starts. No tick releases more than {@link #SPAWN_BUDGET} viruses; any the schedule owes
+ * beyond that are carried into the following ticks, so even a wave of thousands never puts more
+ * than a fixed amount of spawning into one frame.
+ */
+public class WaveSpawner {
+    // Most viruses released in one tick.
+    public static final int SPAWN_BUDGET = 32;
+
+    private SpawnPattern pattern = SpawnPattern.TRICKLE;
+    private int total;
+    private int released;
+    private float elapsed;
+
+    public void begin(SpawnPattern pattern, int total) {
+        this.pattern = pattern;
+        this.total = total;
+        released = 0;
+        elapsed = 0;
+    }
+
+    /**
+     * Advance the schedule by delta and return how many viruses to release now, at most limit.
+     * Claim each one with {@link #next()}.
+     */
+    public int advance(float delta, int limit) {
+        int due = pattern.scheduled(elapsed, total) - released;
+        elapsed += delta;
+        return Math.min(due, limit);
+    }
+
+    /**
+     * Claim the next virus of the wave. Returns its index within the wave.
+     */
+    public int next() {
+        return released++;
+    }
+
+    /**
+     * Spawn height for the virus with the given index.
+     */
+    public float rollY(int index, RandomXS128 random) {
+        return pattern.rollY(index, total, random);
+    }
+
+    /**
+     * Count up to count more of the wave as released without spawning them.
+     */
+    public void skip(int count) {
+        released += Math.min(count, getRemaining());
+    }
+
+    public boolean isFinished() {
+        return released >= total;
+    }
+
+    /**
+     * Viruses in this wave that haven't been released yet.
+     */
+    public int getRemaining() {
+        return total - released;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public SpawnPattern getPattern() {
+        return pattern;
+    }
+
+    // Snapshot support.
+    void write(DataOutput out) throws IOException {
+        out.writeByte(pattern.ordinal());
+        out.writeInt(total);
+        out.writeInt(released);
+        out.writeFloat(elapsed);
+    }
+
+    void read(DataInput in) throws IOException {
+        pattern = SpawnPattern.values()[in.readUnsignedByte()];
+        total = in.readInt();
+        released = in.readInt();
+        elapsed = in.readFloat();
+    }
+}
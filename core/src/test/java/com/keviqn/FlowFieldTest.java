@@ -0,0 +1,55 @@
+package com.keviqn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Incremental repair must leave exactly the field a full rebuild would.
+ */
+public class FlowFieldTest {
+    private static final float GOAL_X = GameWorld.WORLD_WIDTH / 2f, GOAL_Y = GameWorld.WORLD_HEIGHT / 2f;
+
+    private static void assertSameField(FlowField expected, FlowField actual, String context) {
+        for (int cell = 0; cell < expected.getTerrain().getCellCount(); cell++) {
+            if (Float.compare(expected.getDistance(cell), actual.getDistance(cell)) != 0
+                || expected.directionX[cell] != actual.directionX[cell]
+                || expected.directionY[cell] != actual.directionY[cell]) {
+                fail(context + ": cell " + cell + " distance " + actual.getDistance(cell) + ", rebuilt " + expected.getDistance(cell));
+            }
+        }
+    }
+
+    @Test
+    public void repairMatchesRebuildOverRandomEdits() {
+        Random random = new Random(1);
+        TerrainMap terrain = TerrainMap.open();
+        FlowField field = new FlowField(terrain, GOAL_X, GOAL_Y);
+        for (int round = 0; round < 2000; round++) {
+            // A few cells at a time: walls, rough ground of any cost, and open ground again.
+            int edits = 1 + random.nextInt(4);
+            for (int i = 0; i < edits; i++) {
+                int cost = random.nextInt(5) == 0 ? TerrainMap.BLOCKED : 1 + random.nextInt(TerrainMap.MAX_COST);
+                field.setCost(random.nextInt(terrain.getColumns()), random.nextInt(terrain.getRows()), cost);
+            }
+            field.update();
+            assertSameField(new FlowField(terrain.copy(), GOAL_X, GOAL_Y), field, "round " + round);
+        }
+        assertEquals(1, field.getRebuildCount(), "small edits should all be repaired");
+    }
+
+    @Test
+    public void largeEditsFallBackToRebuild() {
+        Random random = new Random(2);
+        TerrainMap terrain = TerrainMap.open();
+        FlowField field = new FlowField(terrain, GOAL_X, GOAL_Y);
+        for (int i = 0; i < terrain.getCellCount() / 2; i++) {
+            field.setCost(random.nextInt(terrain.getColumns()), random.nextInt(terrain.getRows()), random.nextInt(TerrainMap.MAX_COST + 1));
+        }
+        field.update();
+        assertEquals(2, field.getRebuildCount());
+        assertSameField(new FlowField(terrain.copy(), GOAL_X, GOAL_Y), field, "after rebuild");
+    }
+}
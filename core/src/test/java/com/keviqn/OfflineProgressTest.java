@@ -0,0 +1,150 @@
+package com.keviqn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the offline estimate against actually playing the time out on a copy of the world.
+ */
+public class OfflineProgressTest {
+    // A tower strong enough to hold for a few hundred seconds, a little way into wave 1.
+    private static GameWorld strongWorld() {
+        GameWorld world = new GameWorld(3);
+        Tower tower = world.getTower();
+        tower.upgrade(Upgrade.STORAGE_SPACE, 300);
+        tower.upgrade(Upgrade.PROCESSOR_SPEED, 10);
+        tower.upgrade(Upgrade.GRAPHICS_CARD, 15);
+        tower.upgrade(Upgrade.INTERNET_SPEED, 6);
+        for (int i = 0; i < 600; i++) world.step();
+        return world;
+    }
+
+    @Test
+    public void estimateMatchesPlayingTheTimeOut() {
+        for (long seconds : new long[] { 120, 300, 600 }) {
+            GameWorld world = strongWorld();
+            OfflineProgress progress = OfflineProgress.estimate(world, seconds);
+            GameWorld real = world.copy();
+            for (long i = 0; i < Math.round(seconds / (double)GameWorld.STEP); i++) real.step();
+            assertFalse(real.isGameOver(), seconds + "s: real game lost");
+
+            assertEquals(seconds, progress.getSeconds(), seconds + "s: credited time");
+            int realCleared = real.getCurrentWave() - world.getCurrentWave() - (real.getEnemiesRemaining() > 0 ? 1 : 0);
+            assertEquals(realCleared, progress.getWavesCleared(), 1, seconds + "s: waves cleared");
+            long realKills = real.getEnemiesKilled() - world.getEnemiesKilled();
+            assertEquals(realKills, progress.getKills(), realKills * 0.1 + 20, seconds + "s: kills");
+            long realGp = real.getGpEarned() - world.getGpEarned();
+            assertEquals(realGp, progress.getGp(), realGp * 0.1, seconds + "s: gp");
+        }
+    }
+
+    @Test
+    public void lostGameIsCreditedUntilItFalls() {
+        GameWorld world = strongWorld();
+        OfflineProgress progress = OfflineProgress.estimate(world, 3600);
+        GameWorld real = world.copy();
+        long ticks = 0;
+        while (!real.isGameOver()) {
+            real.step();
+            ticks++;
+        }
+        double fell = ticks * GameWorld.STEP;
+        assertTrue(progress.getSeconds() < 3600, "credited the whole absence");
+        assertEquals(fell, progress.getSeconds(), fell * 0.05, "credited time");
+    }
+
+    @Test
+    public void storageDamageIsTakenByTheTower() {
+        GameWorld world = strongWorld();
+        long seconds = 900;
+        OfflineProgress estimate = OfflineProgress.estimate(world, seconds);
+        GameWorld real = world.copy();
+        for (long i = 0; i < Math.round(seconds / (double)GameWorld.STEP); i++) real.step();
+        assertFalse(real.isGameOver(), "real game lost");
+        float realDamage = real.getTower().getStorageTotal() - world.getTower().getStorageTotal();
+        assertTrue(realDamage > 0, "real game took no damage");
+        assertEquals(realDamage, estimate.getStorageDamage(), realDamage * 0.3f, "storage damage");
+
+        float before = world.getTower().getStorageTotal();
+        OfflineProgress progress = world.resumeAfter(seconds);
+        assertNotNull(progress);
+        assertEquals(before + progress.getStorageDamage(), world.getTower().getStorageTotal(), 0.01f);
+    }
+
+    @Test
+    public void lostGameResumesShortOfFalling() {
+        GameWorld world = strongWorld();
+        OfflineProgress progress = world.resumeAfter(3600);
+        assertNotNull(progress);
+        assertTrue(progress.getStorageDamage() > 0, "no storage damage");
+        assertTrue(world.getTower().getStorageTotal() < world.getTower().getStorageAvailable(), "storage full");
+        world.step();
+        assertFalse(world.isGameOver());
+    }
+
+    @Test
+    public void unfinishedWaveCreditsSampleKills() {
+        // A wave far too big to clear in a minute, against a tower that holds out that long.
+        GameWorld world = new GameWorld(5);
+        world.getTower().upgrade(Upgrade.STORAGE_SPACE, 300);
+        world.startWave(50);
+        int remaining = world.getEnemiesRemaining();
+        OfflineProgress progress = world.resumeAfter(OfflineProgress.MIN_SECONDS);
+        assertNotNull(progress);
+        assertEquals(OfflineProgress.MIN_SECONDS, progress.getSeconds());
+        assertEquals(0, progress.getWavesCleared());
+        assertTrue(progress.getKills() > 0, "no kills credited");
+        assertEquals(progress.getKills(), world.getEnemiesKilled());
+        assertEquals(remaining - progress.getKills(), world.getEnemiesRemaining());
+        assertEquals(50, world.getCurrentWave());
+    }
+
+    @Test
+    public void thinnedWaveDropsShotsInFlightAndRoundTrips() throws Exception {
+        GameWorld world = new GameWorld(5);
+        world.getTower().upgrade(Upgrade.STORAGE_SPACE, 300);
+        world.getTower().upgrade(Upgrade.PROCESSOR_SPEED, 30);
+        world.startWave(200);
+        for (int i = 0; i < 600; i++) world.step();
+        assertTrue(world.getProjectiles().size() > 0, "no shots in flight");
+        OfflineProgress progress = world.resumeAfter(OfflineProgress.MIN_SECONDS);
+        assertNotNull(progress);
+        assertEquals(0, progress.getWavesCleared());
+        for (int i = 0; i < world.getProjectiles().size(); i++) {
+            assertTrue(world.getProjectiles().get(i).hasValidTarget(), "shot left aimed at a thinned virus");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        world.writeState(new DataOutputStream(bytes));
+        GameWorld loaded = new GameWorld(5);
+        loaded.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        loaded.writeState(new DataOutputStream(again));
+        assertArrayEquals(bytes.toByteArray(), again.toByteArray());
+    }
+
+    @Test
+    public void replayAppliesTheSameGrant() throws Exception {
+        GameWorld world = new GameWorld(8);
+        Replay replay = new Replay(8);
+        world.setRecording(replay);
+        for (int i = 0; i < 300; i++) world.step();
+        assertNotNull(world.resumeAfter(3600));
+        for (int i = 0; i < 600; i++) world.step();
+
+        ReplayPlayer player = new ReplayPlayer(replay, 1);
+        player.seek(world.getTick());
+        assertEquals(world.getGpEarned(), player.getWorld().getGpEarned());
+        assertEquals(world.getCurrentWave(), player.getWorld().getCurrentWave());
+        assertEquals(world.getEnemiesKilled(), player.getWorld().getEnemiesKilled());
+    }
+}
@@ -0,0 +1,48 @@
+package com.keviqn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The parallel update phases must leave the world bit-identical to the sequential ones.
+ */
+public class ParallelUpdaterTest {
+    private static GameWorld bigWave(long seed) {
+        GameWorld world = new GameWorld(seed);
+        world.getTower().upgrade(Upgrade.STORAGE_SPACE, 3000);
+        world.startWave(300);
+        return world;
+    }
+
+    private static byte[] state(GameWorld world) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        world.writeState(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void parallelTicksMatchSequential() throws IOException {
+        GameWorld sequential = bigWave(11);
+        GameWorld parallel = bigWave(11);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel.setParallelUpdater(new ParallelUpdater(pool));
+            assertTrue(parallel.getAliveVirusCount() >= ParallelUpdater.MIN_PARALLEL_SIZE, "wave too small to run in parallel");
+            for (int tick = 1; tick <= 900; tick++) {
+                sequential.step();
+                parallel.step();
+                if (tick % 60 == 0) assertArrayEquals(state(sequential), state(parallel), "tick " + tick);
+            }
+            assertFalse(sequential.isGameOver(), "game ended before the comparison ran its course");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
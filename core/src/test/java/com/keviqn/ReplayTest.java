@@ -0,0 +1,91 @@
+package com.keviqn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A recorded game, written out and read back, plays to the same final state.
+ */
+public class ReplayTest {
+    private static final long TICKS = 20_000;
+
+    private static byte[] state(GameWorld world) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        world.writeState(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    // Plays a game that uses every kind of action: buys upgrades in turn whenever it can, and
+    // now and then changes targeting and guidance and places a relay.
+    private static GameWorld record(Replay replay) {
+        GameWorld world = new GameWorld(replay.getSeed(), replay.getTerrain());
+        world.setRecording(replay);
+        Tower tower = world.getTower();
+        Upgrade[] upgrades = Upgrade.values();
+        int next = 0;
+        while (!world.isGameOver() && world.getTick() < TICKS) {
+            if (world.purchase(upgrades[next % upgrades.length])) next++;
+            if (world.getTick() % 1200 == 600) world.setTargeting(Targeting.values()[(int)(world.getTick() / 1200) % Targeting.values().length]);
+            if (world.getTick() % 3000 == 1500) world.setGuidance(tower.getGuidance().next());
+            if (world.getTick() % 2000 == 1000) world.placeTower(10 + (int)(world.getTick() / 2000), 4);
+            world.step();
+        }
+        return world;
+    }
+
+    private static Replay roundTrip(Replay replay) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        replay.write(bytes);
+        return Replay.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void playbackReachesTheRecordedState() throws IOException {
+        Replay recorded = new Replay(21, TerrainMap.open());
+        GameWorld live = record(recorded);
+        boolean placed = false;
+        for (int i = 0; i < recorded.size(); i++) placed |= Replay.isPlacement(recorded.getAction(i));
+        assertTrue(placed, "no relay placed");
+        Replay replay = roundTrip(recorded);
+        assertEquals(recorded.size(), replay.size());
+
+        ReplayPlayer player = new ReplayPlayer(replay, 2);
+        player.playToEnd(live.getTick());
+        assertEquals(live.getTick(), player.getWorld().getTick());
+        assertArrayEquals(state(live), state(player.getWorld()));
+    }
+
+    @Test
+    public void seekMatchesPlayingThrough() throws IOException {
+        Replay replay = new Replay(22, TerrainMap.open());
+        GameWorld live = record(replay);
+        long middle = live.getTick() / 2;
+
+        ReplayPlayer player = new ReplayPlayer(replay, 1);
+        player.playToEnd(live.getTick());
+        player.seek(middle);
+        ReplayPlayer fresh = new ReplayPlayer(replay, 1);
+        fresh.seek(middle);
+        assertEquals(middle, player.getWorld().getTick());
+        assertArrayEquals(state(fresh.getWorld()), state(player.getWorld()));
+    }
+
+    @Test
+    public void playbackIgnoresPlayerInput() {
+        Replay replay = new Replay(23, TerrainMap.open());
+        GameWorld world = new GameWorld(replay.getSeed());
+        for (int i = 0; i < 600; i++) world.step();
+        world.setPlayback(replay, 0);
+        int gp = world.getGpEarned();
+        assertFalse(world.purchase(Upgrade.PROCESSOR_SPEED));
+        assertEquals(gp, world.getGpEarned());
+    }
+}
@@ -0,0 +1,52 @@
+package com.keviqn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The movement kernel over terrain: rough ground slows viruses, walls stop them.
+ */
+public class VirusStoreTest {
+    private static final float TARGET_X = GameWorld.WORLD_WIDTH / 2f, TARGET_Y = GameWorld.WORLD_HEIGHT / 2f;
+    private static final float SPEED = 100;
+
+    // A virus centred on the given cell.
+    private static Virus addAt(VirusStore store, TerrainMap terrain, int column, int row) {
+        int cell = terrain.cell(column, row);
+        float x = terrain.getCellX(cell) + terrain.getCellWidth() / 2f - VirusStore.HALF_SIZE;
+        float y = terrain.getCellY(cell) + terrain.getCellHeight() / 2f - VirusStore.HALF_SIZE;
+        return store.add(new Virus(), x, y, SPEED, store.size());
+    }
+
+    @Test
+    public void roughGroundDividesSpeedByItsCost() {
+        TerrainMap terrain = TerrainMap.open();
+        for (int row = 0; row < terrain.getRows(); row++) terrain.setCost(terrain.cell(4, row), 4);
+        VirusStore store = new VirusStore(2);
+        store.setFlowField(new FlowField(terrain, TARGET_X, TARGET_Y));
+        // Both on the tower's row, heading straight right; one on the rough column.
+        Virus open = addAt(store, terrain, 2, 9);
+        Virus rough = addAt(store, terrain, 4, 9);
+        store.updateAll(GameWorld.STEP, TARGET_X, TARGET_Y);
+        assertEquals(SPEED, open.getVelocityX(), 0.01f, "open ground");
+        assertEquals(SPEED / 4, rough.getVelocityX(), 0.01f, "rough ground");
+    }
+
+    @Test
+    public void stepsStopShortOfWalls() {
+        // A wall the field hasn't been updated for yet still points the virus into it.
+        TerrainMap terrain = TerrainMap.open();
+        FlowField field = new FlowField(terrain, TARGET_X, TARGET_Y);
+        VirusStore store = new VirusStore(1);
+        store.setFlowField(field);
+        Virus virus = addAt(store, terrain, 5, 9);
+        field.setCost(6, 9, TerrainMap.BLOCKED);
+        for (int tick = 0; tick < 120; tick++) {
+            store.updateAll(GameWorld.STEP, TARGET_X, TARGET_Y);
+            assertFalse(terrain.isBlocked(terrain.cellAt(virus.getCenterX(), virus.getCenterY())), "in the wall at tick " + tick);
+        }
+        assertEquals(terrain.getCellX(terrain.cell(6, 9)), virus.getCenterX(), SPEED * GameWorld.STEP, "stopped at the wall");
+    }
+}